@@ -0,0 +1,152 @@
+package com.example.chatapp.benchmarks;
+
+import com.example.chatapp.model.DirectChat;
+import com.example.chatapp.model.projection.GroupAudience;
+import com.example.chatapp.repository.GroupRepository;
+import com.example.chatapp.service.ChatMembershipCache;
+import com.example.chatapp.websocket.DestinationAuthorizationInterceptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame cost of DestinationAuthorizationInterceptor with a warm
+ * membership cache, against a SEND it lets through unchecked.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DestinationAuthorizationBenchmark {
+    
+    @Param({"10", "1000"})
+    private int members;
+    
+    private DestinationAuthorizationInterceptor interceptor;
+    private Message<?> unchecked;
+    private Message<?> subscribeGroup;
+    private Message<?> subscribeDirect;
+    private Message<?> sendGroup;
+    private Message<?> sendDirect;
+    
+    @Setup
+    public void setUp() {
+        String userId = new ObjectId().toHexString();
+        String partnerId = new ObjectId().toHexString();
+        String groupId = new ObjectId().toHexString();
+        String directId = DirectChat.generateId(userId, partnerId);
+        
+        List<String> memberIds = new ArrayList<>();
+        for (int i = 1; i < members; i++) {
+            memberIds.add(new ObjectId().toHexString());
+        }
+        memberIds.add(userId);
+        GroupAudience audience = new GroupAudience() {
+            @Override
+            public List<String> getMembers() {
+                return memberIds;
+            }
+            
+            @Override
+            public List<String> getMutedMembers() {
+                return List.of();
+            }
+        };
+        GroupRepository groupRepository = (GroupRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { GroupRepository.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("findAudienceById")) {
+                        return Optional.of(audience);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        
+        ChatMembershipCache cache = new ChatMembershipCache(groupRepository, 1000, Duration.ofHours(1));
+        // The user id is resolved on a session's first frame; only that frame pays the lookup
+        interceptor = new DestinationAuthorizationInterceptor(cache, null,
+                new StaticListableBeanFactory().getBeanProvider(SimpMessagingTemplate.class), new SimpleMeterRegistry());
+        Map<String, Object> session = new ConcurrentHashMap<>(Map.of("chat.userId", userId));
+        
+        String content = "x".repeat(200);
+        unchecked = frame(StompCommand.SEND, "/app/chat.latency", session,
+                "{\"enqueued\":1700000000000000,\"receivedAt\":1700000000000}");
+        subscribeGroup = frame(StompCommand.SUBSCRIBE, "/topic/chat." + groupId, session, null);
+        subscribeDirect = frame(StompCommand.SUBSCRIBE, "/topic/chat." + directId + ".typing", session, null);
+        sendGroup = frame(StompCommand.SEND, "/app/chat.send", session, "{\"chatId\":\"" + groupId
+                + "\",\"groupId\":\"" + groupId + "\",\"content\":\"" + content
+                + "\",\"type\":\"TEXT\",\"clientMessageId\":\"temp-1700000000000\"}");
+        sendDirect = frame(StompCommand.SEND, "/app/chat.send", session, "{\"chatId\":\"" + directId
+                + "\",\"receiverId\":\"" + partnerId + "\",\"content\":\"" + content
+                + "\",\"type\":\"TEXT\",\"clientMessageId\":\"temp-1700000000000\"}");
+        
+        for (Message<?> message : List.of(subscribeGroup, subscribeDirect, sendGroup, sendDirect)) {
+            if (interceptor.preSend(message, null) == null) {
+                throw new IllegalStateException("Frame was denied: " + message);
+            }
+        }
+    }
+    
+    private static Message<?> frame(StompCommand command, String destination, Map<String, Object> session,
+                                    String json) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setDestination(destination);
+        accessor.setSessionId("benchmark");
+        accessor.setSessionAttributes(session);
+        accessor.setUser(new UsernamePasswordAuthenticationToken("benchmark@example.com", null, List.of()));
+        byte[] payload = json != null ? json.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+    
+    @Benchmark
+    public Message<?> sendUnchecked() {
+        return interceptor.preSend(unchecked, null);
+    }
+    
+    @Benchmark
+    public Message<?> subscribeGroupTopic() {
+        return interceptor.preSend(subscribeGroup, null);
+    }
+    
+    @Benchmark
+    public Message<?> subscribeDirectTopic() {
+        return interceptor.preSend(subscribeDirect, null);
+    }
+    
+    @Benchmark
+    public Message<?> sendGroupMessage() {
+        return interceptor.preSend(sendGroup, null);
+    }
+    
+    @Benchmark
+    public Message<?> sendDirectMessage() {
+        return interceptor.preSend(sendDirect, null);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.chatapp.benchmarks;
+
+import com.example.chatapp.model.DirectChat;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Direct chat id handling: id generation when a chat is opened and the
+ * destinations computed for every direct message in WebSocketController.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DirectChatBenchmark {
+    
+    private String userId1;
+    private String userId2;
+    private String chatId;
+    
+    @Setup
+    public void setUp() {
+        userId1 = new ObjectId().toHexString();
+        userId2 = new ObjectId().toHexString();
+        chatId = DirectChat.generateId(userId1, userId2);
+    }
+    
+    @Benchmark
+    public String generateId() {
+        return DirectChat.generateId(userId2, userId1);
+    }
+    
+    @Benchmark
+    public String[] participantIds() {
+        return DirectChat.participantIds(chatId);
+    }
+    
+    @Benchmark
+    public void destinations(Blackhole blackhole) {
+        // The topic plus the two per-user queues of a direct message
+        blackhole.consume("/topic/chat." + chatId);
+        String[] participants = DirectChat.participantIds(chatId);
+        if (participants != null) {
+            for (String userId : participants) {
+                blackhole.consume(userId);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.chatapp.benchmarks;
+
+import com.example.chatapp.model.Group;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Membership checks as GroupService does them, on Group.members (a List),
+ * with a HashSet of the same ids as reference.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GroupMembershipBenchmark {
+    
+    @Param({"10", "100", "1000"})
+    private int members;
+    
+    private Group group;
+    private Set<String> memberSet;
+    private String lastMember;
+    private String outsider;
+    
+    @Setup
+    public void setUp() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < members; i++) {
+            ids.add(new ObjectId().toHexString());
+        }
+        group = Group.builder().id(new ObjectId().toHexString()).name("benchmark").members(ids).build();
+        memberSet = new HashSet<>(ids);
+        // Fresh String instances so equals() compares contents, as with ids from a request
+        lastMember = new String(ids.get(ids.size() - 1));
+        outsider = new ObjectId().toHexString();
+    }
+    
+    @Benchmark
+    public boolean listContainsMember() {
+        return group.getMembers().contains(lastMember);
+    }
+    
+    @Benchmark
+    public boolean listContainsOutsider() {
+        return group.getMembers().contains(outsider);
+    }
+    
+    @Benchmark
+    public boolean setContainsMember() {
+        return memberSet.contains(lastMember);
+    }
+    
+    @Benchmark
+    public boolean setContainsOutsider() {
+        return memberSet.contains(outsider);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.chatapp.benchmarks;
+
+import com.example.chatapp.util.TimeOrderedIdGenerator;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message id generation, once per sent message, with one generator shared by
+ * all threads as in the application. The contended variants show the cost of
+ * CAS retries on the single state word; the ObjectId variants are what the
+ * driver did before ids were assigned by the application.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdGeneratorBenchmark {
+    
+    private final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(42);
+    
+    @Benchmark
+    @Threads(1)
+    public String timeOrdered() {
+        return generator.nextId();
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public String timeOrderedContended4() {
+        return generator.nextId();
+    }
+    
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String timeOrderedContendedMax() {
+        return generator.nextId();
+    }
+    
+    @Benchmark
+    @Threads(1)
+    public String objectId() {
+        return new ObjectId().toHexString();
+    }
+    
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String objectIdContendedMax() {
+        return new ObjectId().toHexString();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.chatapp.benchmarks;
+
+import com.example.chatapp.model.Message;
+import com.example.chatapp.model.dto.MessageResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON encoding of a chat message, done once per convertAndSend on the send
+ * path, and decoding, done for REST responses read back by clients.
+ * The entity variants serialize the persistence entity with Boot's default
+ * mapper, as the API did before it moved to wire DTOs; the wire variants
+ * serialize {@link MessageResponse} with the application's settings
+ * (null omission and the Blackbird module).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageSerializationBenchmark {
+    
+    @Param({"0", "5", "50"})
+    private int reactions;
+    
+    private ObjectMapper entityMapper;
+    private ObjectMapper wireMapper;
+    private Message message;
+    private MessageResponse response;
+    private byte[] entityJson;
+    private byte[] wireJson;
+    
+    @Setup
+    public void setUp() throws Exception {
+        // Same defaults as the ObjectMapper Spring Boot configures
+        entityMapper = Jackson2ObjectMapperBuilder.json().build();
+        wireMapper = Jackson2ObjectMapperBuilder.json()
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .modulesToInstall(new BlackbirdModule())
+                .build();
+        
+        String senderId = new ObjectId().toHexString();
+        String receiverId = new ObjectId().toHexString();
+        List<Message.MessageReaction> reactionList = new ArrayList<>();
+        for (int i = 0; i < reactions; i++) {
+            reactionList.add(Message.MessageReaction.builder()
+                    .emoji(i % 2 == 0 ? "👍" : "❤️")
+                    .userId(new ObjectId().toHexString())
+                    .userName("User " + i)
+                    .timestamp(LocalDateTime.now())
+                    .build());
+        }
+        message = Message.builder()
+                .id(new ObjectId().toHexString())
+                .chatId("direct_" + senderId + "_" + receiverId)
+                .senderId(senderId)
+                .receiverId(receiverId)
+                .content("Hey, are we still on for the design review at three? I moved it to the big room.")
+                .timestamp(LocalDateTime.now())
+                .editedAt(LocalDateTime.now())
+                .reactions(reactionList)
+                .build();
+        response = MessageResponse.from(message);
+        entityJson = entityMapper.writeValueAsBytes(message);
+        wireJson = wireMapper.writeValueAsBytes(response);
+        System.out.printf("%nPayload bytes with %d reactions: entity=%d wire=%d%n",
+                reactions, entityJson.length, wireJson.length);
+    }
+    
+    @Benchmark
+    public byte[] serializeEntity() throws Exception {
+        return entityMapper.writeValueAsBytes(message);
+    }
+    
+    @Benchmark
+    public byte[] serializeWire() throws Exception {
+        return wireMapper.writeValueAsBytes(MessageResponse.from(message));
+    }
+    
+    @Benchmark
+    public Message deserializeEntity() throws Exception {
+        return entityMapper.readValue(entityJson, Message.class);
+    }
+    
+    @Benchmark
+    public MessageResponse deserializeWire() throws Exception {
+        return wireMapper.readValue(wireJson, MessageResponse.class);
+    }
+}
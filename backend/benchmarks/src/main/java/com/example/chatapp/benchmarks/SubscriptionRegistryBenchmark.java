@@ -0,0 +1,126 @@
+package com.example.chatapp.benchmarks;
+
+import com.example.chatapp.websocket.ExactMatchSubscriptionRegistry;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.messaging.simp.broker.SubscriptionRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MultiValueMap;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The broker's subscription registry under this app's destination mix:
+ * long-lived chat topics that are looked up per message, and short-lived
+ * destinations subscribed and dropped again. Compares the stock registry
+ * with ExactMatchSubscriptionRegistry.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubscriptionRegistryBenchmark {
+    
+    private static final int CHATS = 10_000;
+    private static final int SESSIONS_PER_CHAT = 4;
+    
+    @Param({"default", "exact"})
+    private String registryType;
+    
+    private SubscriptionRegistry registry;
+    private Message<?>[] publishes;
+    private final AtomicLong churn = new AtomicLong();
+    
+    @Setup
+    public void setUp() {
+        registry = registryType.equals("exact") ? new ExactMatchSubscriptionRegistry() : new DefaultSubscriptionRegistry();
+        publishes = new Message<?>[CHATS];
+        for (int i = 0; i < CHATS; i++) {
+            String destination = "/topic/chat." + new ObjectId().toHexString();
+            for (int s = 0; s < SESSIONS_PER_CHAT; s++) {
+                registry.registerSubscription(subscribe("session-" + (i * SESSIONS_PER_CHAT + s), "sub-" + i,
+                        destination));
+            }
+            publishes[i] = publish(destination);
+        }
+    }
+    
+    private static Message<?> subscribe(String sessionId, String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+    
+    private static Message<?> unsubscribe(String sessionId, String subscriptionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+    
+    private static Message<?> publish(String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+    
+    @Benchmark
+    public MultiValueMap<String, String> lookup() {
+        return registry.findSubscriptions(publishes[ThreadLocalRandom.current().nextInt(CHATS)]);
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public MultiValueMap<String, String> lookupContended() {
+        return registry.findSubscriptions(publishes[ThreadLocalRandom.current().nextInt(CHATS)]);
+    }
+    
+    // A destination that lives for one subscription, such as a per-message topic
+    @Benchmark
+    public void subscribeUnsubscribe() {
+        long n = churn.incrementAndGet();
+        String sessionId = "churn-" + (n % 1000);
+        String subscriptionId = "sub-" + n;
+        registry.registerSubscription(subscribe(sessionId, subscriptionId, "/topic/read." + n));
+        registry.unregisterSubscription(unsubscribe(sessionId, subscriptionId));
+    }
+    
+    // Subscribing while other sessions publish to the same chat
+    @Benchmark
+    @Threads(4)
+    public MultiValueMap<String, String> subscribeWhilePublishing() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Message<?> publish = publishes[random.nextInt(CHATS)];
+        if (random.nextInt(10) == 0) {
+            long n = churn.incrementAndGet();
+            String sessionId = "churn-" + (n % 1000);
+            String subscriptionId = "sub-" + n;
+            registry.registerSubscription(subscribe(sessionId, subscriptionId,
+                    SimpMessageHeaderAccessor.getDestination(publish.getHeaders())));
+            registry.unregisterSubscription(unsubscribe(sessionId, subscriptionId));
+            return null;
+        }
+        return registry.findSubscriptions(publish);
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.chatapp.loadtest;
+
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One simulated user: a STOMP session subscribed to the topics of all its
+ * chats, performing a seeded random mix of send, typing and read operations.
+ * Sent message content carries the send time, so every subscriber that
+ * receives it can record the delivery latency (clients share the JVM clock).
+ * Message ids are time-ordered, so a chat delivering an id lower than the
+ * last one it delivered, on its topic or as sharded group fan-out on the
+ * personal queue, is counted as a "reordered" error.
+ */
+class LoadClient extends StompSessionHandlerAdapter {
+    
+    private static final String STAMP = "lt ";
+    private static final int RECENT_IDS = 16;
+    private static final int MAX_UNACKED = 500;
+    
+    record Chat(String chatId, String receiverId, String groupId) {
+    }
+    
+    private final String email;
+    private final String userId;
+    private final List<Chat> chats;
+    private final Scenario scenario;
+    private final LoadReport report;
+    private final Random random;
+    private final String filler;
+    
+    // Ids of messages seen recently, used as targets of read operations
+    private final List<String> recentIds = new ArrayList<>();
+    // Ids received since the last ack, acknowledged as delivered with the next read operation
+    private final List<String> unacked = new ArrayList<>();
+    // Last message id received per chat topic
+    private final Map<String, String> lastTopicIds = new ConcurrentHashMap<>();
+    private long sends;
+    
+    private volatile StompSession session;
+    // Set by an ERROR frame from admission control; the next connect attempt waits this long
+    private volatile long retryAfterMillis;
+    private volatile boolean reconnecting;
+    
+    LoadClient(String email, String userId, List<Chat> chats, Scenario scenario, LoadReport report, long seed) {
+        this.email = email;
+        this.userId = userId;
+        this.chats = chats;
+        this.scenario = scenario;
+        this.report = report;
+        this.random = new Random(seed);
+        this.filler = "x".repeat(Math.max(0, scenario.contentBytes - 24));
+    }
+    
+    String getEmail() {
+        return email;
+    }
+    
+    String getUserId() {
+        return userId;
+    }
+    
+    boolean isConnected() {
+        StompSession current = session;
+        return current != null && current.isConnected();
+    }
+    
+    @Override
+    public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+        this.session = session;
+        this.reconnecting = false;
+        for (Chat chat : chats) {
+            session.subscribe("/topic/chat." + chat.chatId(), new FrameHandler(Kind.MESSAGE));
+            session.subscribe("/topic/chat." + chat.chatId() + ".typing", new FrameHandler(Kind.TYPING));
+        }
+        // Large groups are delivered per member on the personal queue instead of the chat topic
+        session.subscribe("/user/queue/messages", new FrameHandler(Kind.QUEUE));
+        session.subscribe("/user/queue/errors", new FrameHandler(Kind.ERROR));
+    }
+    
+    // Frames without a subscription: ERROR, for a refused CONNECT
+    @Override
+    public void handleFrame(StompHeaders headers, Object payload) {
+        String retryAfter = headers.getFirst("retry-after");
+        if (retryAfter != null) {
+            retryAfterMillis = Long.parseLong(retryAfter);
+        }
+    }
+    
+    void setReconnecting(boolean reconnecting) {
+        this.reconnecting = reconnecting;
+    }
+    
+    long takeRetryAfter() {
+        long retryAfter = retryAfterMillis;
+        retryAfterMillis = 0;
+        return retryAfter;
+    }
+    
+    @Override
+    public void handleException(StompSession session, StompCommand command, StompHeaders headers,
+                                byte[] payload, Throwable exception) {
+        report.recordError("stomp");
+    }
+    
+    @Override
+    public void handleTransportError(StompSession session, Throwable exception) {
+        if (reconnecting) {
+            // Counted and retried by the reconnect storm
+            return;
+        }
+        report.recordError(session.isConnected() ? "transport" : "disconnected");
+    }
+    
+    // Called from one worker at a time; the Random is not shared
+    void step() {
+        StompSession current = session;
+        if (current == null || !current.isConnected() || chats.isEmpty()) {
+            return;
+        }
+        Chat chat = chats.get(random.nextInt(chats.size()));
+        int roll = random.nextInt(100);
+        try {
+            if (roll < scenario.readPercent) {
+                String messageId = recentMessageId();
+                if (messageId != null) {
+                    current.send("/app/chat.ack", Map.of("delivered", drainUnacked(), "read", List.of(messageId)));
+                    report.recordOperation("read");
+                    return;
+                }
+            } else if (roll < scenario.readPercent + scenario.typingPercent) {
+                current.send("/app/chat.typing", Map.of("chatId", chat.chatId(), "isTyping", random.nextBoolean()));
+                report.recordOperation("typing");
+                return;
+            }
+            current.send("/app/chat.send", sendPayload(chat));
+            report.recordOperation("send");
+        } catch (RuntimeException e) {
+            report.recordError("send");
+        }
+    }
+    
+    void disconnect() {
+        StompSession current = session;
+        if (current != null && current.isConnected()) {
+            current.disconnect();
+        }
+    }
+    
+    private Map<String, Object> sendPayload(Chat chat) {
+        String content = STAMP + System.nanoTime() + " " + filler;
+        // Unique per send, like the frontend's temporary ids
+        String clientMessageId = "lt-" + (++sends);
+        if (chat.groupId() != null) {
+            return Map.of("chatId", chat.chatId(), "groupId", chat.groupId(), "content", content, "type", "TEXT",
+                    "clientMessageId", clientMessageId);
+        }
+        return Map.of("chatId", chat.chatId(), "receiverId", chat.receiverId(), "content", content, "type", "TEXT",
+                "clientMessageId", clientMessageId);
+    }
+    
+    private String recentMessageId() {
+        synchronized (recentIds) {
+            return recentIds.isEmpty() ? null : recentIds.get(random.nextInt(recentIds.size()));
+        }
+    }
+    
+    private List<String> drainUnacked() {
+        synchronized (recentIds) {
+            List<String> delivered = new ArrayList<>(unacked);
+            unacked.clear();
+            return delivered;
+        }
+    }
+    
+    private void onMessage(Map<?, ?> message) {
+        long received = System.nanoTime();
+        if (message.get("content") instanceof String content && content.startsWith(STAMP)) {
+            int end = content.indexOf(' ', STAMP.length());
+            long sent = Long.parseLong(content.substring(STAMP.length(), end < 0 ? content.length() : end));
+            report.recordDelivery((received - sent) / 1000);
+        }
+        if (message.get("id") instanceof String id) {
+            synchronized (recentIds) {
+                if (recentIds.size() == RECENT_IDS) {
+                    recentIds.remove(0);
+                }
+                recentIds.add(id);
+                if (unacked.size() < MAX_UNACKED) {
+                    unacked.add(id);
+                }
+            }
+        }
+    }
+    
+    // Ids are 24 fixed-width hex digits, so string order is id order
+    private void checkOrder(Map<?, ?> message) {
+        if (message.get("chatId") instanceof String chatId && message.get("id") instanceof String id) {
+            String previous = lastTopicIds.put(chatId, id);
+            if (previous != null && previous.compareTo(id) > 0) {
+                report.recordError("reordered");
+            }
+        }
+    }
+    
+    private enum Kind {
+        MESSAGE, QUEUE, TYPING, ERROR
+    }
+    
+    // Sampled messages carry server stamps; echo the enqueue stamp with our receive time
+    private void reportLatency(String enqueued) {
+        StompSession current = session;
+        if (enqueued != null && current != null && current.isConnected()) {
+            current.send("/app/chat.latency", Map.of("enqueued", Long.parseLong(enqueued),
+                    "receivedAt", System.currentTimeMillis()));
+        }
+    }
+    
+    private class FrameHandler implements StompFrameHandler {
+        private final Kind kind;
+        
+        FrameHandler(Kind kind) {
+            this.kind = kind;
+        }
+        
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return Map.class;
+        }
+        
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            switch (kind) {
+                case MESSAGE -> {
+                    if (payload instanceof Map<?, ?> message) {
+                        checkOrder(message);
+                        onMessage(message);
+                    }
+                    reportLatency(headers.getFirst("x-enqueued"));
+                }
+                case QUEUE -> {
+                    // Direct messages also arrive on the chat topic; count them there only
+                    if (payload instanceof Map<?, ?> message && message.get("groupId") != null) {
+                        checkOrder(message);
+                        onMessage(message);
+                        reportLatency(headers.getFirst("x-enqueued"));
+                    }
+                }
+                case TYPING -> report.recordOperation("typing-received");
+                case ERROR -> report.recordError("server");
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.chatapp.loadtest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects delivery latency (microseconds, send to receipt on a subscriber)
+ * in an HdrHistogram recorder, plus operation, delivery and error counts.
+ * Interval histograms are logged in HdrHistogram log format; the final
+ * report prints the percentile distribution of the measured period.
+ */
+class LoadReport {
+    
+    private final Recorder latency = new Recorder(3);
+    private final Histogram measured = new Histogram(3);
+    private final Map<String, LongAdder> operations = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder deliveries = new LongAdder();
+    
+    private final PrintStream out;
+    private final HistogramLogWriter logWriter;
+    private final Path outputDir;
+    
+    private long intervalStart;
+    private long phaseStart;
+    private long measureStart;
+    private long measuredOperations;
+    private long measuredDeliveries;
+    private long measuredErrors;
+    private boolean measuring;
+    
+    LoadReport(PrintStream out, Path outputDir) throws IOException {
+        this.out = out;
+        this.outputDir = Files.createDirectories(outputDir);
+        this.logWriter = new HistogramLogWriter(outputDir.resolve("latency.hlog").toFile());
+        logWriter.outputLogFormatVersion();
+        logWriter.outputLegend();
+    }
+    
+    void recordDelivery(long latencyMicros) {
+        deliveries.increment();
+        latency.recordValue(Math.max(0, latencyMicros));
+    }
+    
+    void recordOperation(String operation) {
+        operations.computeIfAbsent(operation, key -> new LongAdder()).increment();
+    }
+    
+    void recordError(String kind) {
+        errors.computeIfAbsent(kind, key -> new LongAdder()).increment();
+    }
+    
+    long errorCount() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+    
+    synchronized void startWarmup() {
+        latency.reset();
+        phaseStart = System.currentTimeMillis();
+        intervalStart = phaseStart;
+    }
+    
+    // Everything recorded before this call counts as warmup
+    synchronized void startMeasuring() {
+        latency.reset();
+        measuring = true;
+        measureStart = System.currentTimeMillis();
+        phaseStart = measureStart;
+        intervalStart = measureStart;
+        measuredOperations = -totalOperations();
+        measuredDeliveries = -deliveries.sum();
+        measuredErrors = -errorCount();
+    }
+    
+    synchronized void interval() {
+        Histogram histogram = latency.getIntervalHistogram();
+        long now = System.currentTimeMillis();
+        histogram.setStartTimeStamp(intervalStart);
+        histogram.setEndTimeStamp(now);
+        if (measuring) {
+            measured.add(histogram);
+            logWriter.outputIntervalHistogram(histogram);
+        }
+        out.printf("%s %6ds  deliveries=%-8d p50=%.1fms p99=%.1fms max=%.1fms  errors=%d%n",
+                measuring ? "[measure]" : "[warmup] ",
+                (now - phaseStart) / 1000,
+                histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getMaxValue() / 1000.0,
+                errorCount());
+        intervalStart = now;
+    }
+    
+    synchronized void finish(Scenario scenario) throws FileNotFoundException {
+        interval();
+        double seconds = Math.max(1, System.currentTimeMillis() - measureStart) / 1000.0;
+        long ops = measuredOperations + totalOperations();
+        long delivered = measuredDeliveries + deliveries.sum();
+        long failed = measuredErrors + errorCount();
+        
+        out.println();
+        out.println("Scenario    " + scenario);
+        out.printf("Throughput  %.1f ops/s sent, %.1f deliveries/s over %.0fs%n", ops / seconds, delivered / seconds, seconds);
+        out.println("Operations  " + sums(operations) + " including warmup");
+        out.printf("Errors      %s including warmup; %d measured (%.3f%% of operations)%n",
+                sums(errors), failed, ops == 0 ? 0.0 : 100.0 * failed / ops);
+        out.printf("Latency     p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms (n=%d)%n",
+                measured.getValueAtPercentile(50) / 1000.0,
+                measured.getValueAtPercentile(90) / 1000.0,
+                measured.getValueAtPercentile(99) / 1000.0,
+                measured.getValueAtPercentile(99.9) / 1000.0,
+                measured.getMaxValue() / 1000.0,
+                measured.getTotalCount());
+        
+        // Percentile distribution in milliseconds, loadable by the HdrHistogram plotter
+        Path hgrm = outputDir.resolve(scenario.name + ".hgrm");
+        try (PrintStream file = new PrintStream(hgrm.toFile())) {
+            measured.outputPercentileDistribution(file, 1000.0);
+        }
+        measured.outputPercentileDistribution(out, 5, 1000.0);
+        out.println("Wrote " + hgrm.toAbsolutePath() + " and " + outputDir.resolve("latency.hlog").toAbsolutePath());
+        logWriter.close();
+    }
+    
+    // Server-side stage timers of the application under test, including warmup
+    void serverStages(MeterRegistry meterRegistry) {
+        out.println();
+        out.println("Server stages (mean / max ms, count)");
+        for (String name : List.of("chat.send.stage", "chat.latency.stage")) {
+            for (Timer timer : meterRegistry.find(name).timers()) {
+                out.printf("  %-20s %-14s %8.2f / %8.2f  %d%n", name, timer.getId().getTag("stage"),
+                        timer.mean(TimeUnit.MILLISECONDS), timer.max(TimeUnit.MILLISECONDS), timer.count());
+            }
+        }
+    }
+    
+    private long totalOperations() {
+        return operations.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+    
+    private static Map<String, Long> sums(Map<String, LongAdder> counters) {
+        Map<String, Long> sums = new TreeMap<>();
+        counters.forEach((key, value) -> sums.put(key, value.sum()));
+        return sums;
+    }
+}
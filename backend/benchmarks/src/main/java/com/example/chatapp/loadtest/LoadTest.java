@@ -0,0 +1,298 @@
+package com.example.chatapp.loadtest;
+
+import com.example.chatapp.ChatAppApplication;
+import com.example.chatapp.model.DirectChat;
+import com.example.chatapp.model.Group;
+import com.example.chatapp.model.User;
+import com.example.chatapp.repository.GroupRepository;
+import com.example.chatapp.repository.UserRepository;
+import com.example.chatapp.security.JwtUtil;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Boots the application in this JVM against an in-memory MongoDB stand-in
+ * (or the real MongoDB given by {@code --mongo-uri}, whose persistence costs
+ * are representative), seeds users, groups and direct chats, opens
+ * one STOMP session per user on {@code /ws/chat} and replays the scenario's
+ * operation mix. See {@link Scenario} for the options.
+ */
+public class LoadTest {
+    
+    private static final int MAX_PENDING_CONNECTS = 256;
+    
+    public static void main(String[] args) throws Exception {
+        Scenario scenario = Scenario.parse(args);
+        System.out.println("Scenario " + scenario);
+        
+        MongoServer mongoServer = null;
+        String mongoUri = scenario.mongoUri;
+        if (mongoUri == null) {
+            mongoServer = new MongoServer(new MemoryBackend());
+            InetSocketAddress address = mongoServer.bind();
+            mongoUri = "mongodb://" + address.getHostString() + ":" + address.getPort() + "/chatapp-loadtest";
+        }
+        
+        int exitCode;
+        try (ConfigurableApplicationContext app = startApplication(scenario, mongoUri)) {
+            exitCode = run(scenario, app);
+        } finally {
+            if (mongoServer != null) {
+                mongoServer.shutdownNow();
+            }
+        }
+        System.exit(exitCode);
+    }
+    
+    private static ConfigurableApplicationContext startApplication(Scenario scenario, String mongoUri) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.data.mongodb.uri", mongoUri);
+        properties.put("jwt.secret", UUID.randomUUID() + "-" + UUID.randomUUID());
+        properties.put("cloudinary.cloud-name", "loadtest");
+        properties.put("cloudinary.api-key", "loadtest");
+        properties.put("cloudinary.api-secret", "loadtest");
+        // application.properties logs at DEBUG, which would dominate the measurement
+        properties.put("logging.level.com.example.chatapp", "WARN");
+        properties.put("logging.level.org.springframework.security", "WARN");
+        properties.put("logging.level.org.springframework.web.socket", "WARN");
+        properties.putAll(scenario.appProperties);
+        
+        // As command line arguments, so they take precedence over application.properties
+        String[] args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(ChatAppApplication.class).run(args);
+    }
+    
+    private static int run(Scenario scenario, ConfigurableApplicationContext app) throws Exception {
+        String port = app.getEnvironment().getProperty("local.server.port");
+        String url = "ws://localhost:" + port + "/ws/chat";
+        LoadReport report = new LoadReport(System.out, Path.of(scenario.output));
+        
+        List<LoadClient> clients = seed(scenario, app, report);
+        JwtUtil jwtUtil = app.getBean(JwtUtil.class);
+        
+        ThreadPoolTaskScheduler stompScheduler = new ThreadPoolTaskScheduler();
+        stompScheduler.setPoolSize(2);
+        stompScheduler.setThreadNamePrefix("loadtest-stomp-");
+        stompScheduler.initialize();
+        
+        WebSocketStompClient stompClient = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        stompClient.setTaskScheduler(stompScheduler);
+        
+        connect(scenario, stompClient, jwtUtil, url, clients, report);
+        
+        ScheduledExecutorService workers = Executors.newScheduledThreadPool(scenario.workerThreads);
+        Random jitter = new Random(scenario.seed);
+        long periodMicros = (long) (1_000_000 / scenario.rate);
+        for (LoadClient client : clients) {
+            workers.scheduleAtFixedRate(client::step, (long) (jitter.nextDouble() * periodMicros),
+                    periodMicros, TimeUnit.MICROSECONDS);
+        }
+        
+        report.startWarmup();
+        runPhase(scenario.warmupSeconds, scenario.reportIntervalSeconds, report);
+        report.startMeasuring();
+        runPhase(scenario.durationSeconds, scenario.reportIntervalSeconds, report);
+        
+        workers.shutdownNow();
+        // Let in-flight deliveries land before the final interval is taken
+        Thread.sleep(1000);
+        report.finish(scenario);
+        report.serverStages(app.getBean(MeterRegistry.class));
+        boolean recovered = !scenario.reconnectStorm || reconnectStorm(scenario, stompClient, jwtUtil, url, clients);
+        
+        clients.forEach(LoadClient::disconnect);
+        Thread.sleep(1000);
+        stompClient.stop();
+        stompScheduler.shutdown();
+        return report.errorCount() == 0 && recovered ? 0 : 1;
+    }
+    
+    private static List<LoadClient> seed(Scenario scenario, ConfigurableApplicationContext app, LoadReport report) {
+        UserRepository userRepository = app.getBean(UserRepository.class);
+        GroupRepository groupRepository = app.getBean(GroupRepository.class);
+        Random random = new Random(scenario.seed);
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < scenario.users; i++) {
+            users.add(User.builder()
+                    .email("load-" + run + "-" + i + "@loadtest.local")
+                    .name("Load User " + i)
+                    // Sessions authenticate with generated JWTs; no login happens
+                    .passwordHash("{noop}unused")
+                    .build());
+        }
+        users = userRepository.saveAll(users);
+        
+        Map<String, List<LoadClient.Chat>> chatsByUser = new HashMap<>();
+        users.forEach(user -> chatsByUser.put(user.getId(), new ArrayList<>()));
+        
+        Set<String> directIds = new HashSet<>();
+        for (User user : users) {
+            for (int p = 0; p < scenario.directPartners && users.size() > 1; p++) {
+                User partner = users.get(random.nextInt(users.size()));
+                String chatId = DirectChat.generateId(user.getId(), partner.getId());
+                if (partner == user || !directIds.add(chatId)) {
+                    continue;
+                }
+                chatsByUser.get(user.getId()).add(new LoadClient.Chat(chatId, partner.getId(), null));
+                chatsByUser.get(partner.getId()).add(new LoadClient.Chat(chatId, user.getId(), null));
+            }
+        }
+        
+        List<Group> groups = new ArrayList<>();
+        for (int g = 0; g < scenario.groups; g++) {
+            Set<String> members = new HashSet<>();
+            while (members.size() < Math.min(scenario.groupSize, users.size())) {
+                members.add(users.get(random.nextInt(users.size())).getId());
+            }
+            groups.add(Group.builder()
+                    .name("Load Group " + g)
+                    .createdBy(members.iterator().next())
+                    .members(new ArrayList<>(members))
+                    .build());
+        }
+        for (Group group : groupRepository.saveAll(groups)) {
+            for (String memberId : group.getMembers()) {
+                chatsByUser.get(memberId).add(new LoadClient.Chat(group.getId(), null, group.getId()));
+            }
+        }
+        
+        List<LoadClient> clients = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            clients.add(new LoadClient(user.getEmail(), user.getId(), chatsByUser.get(user.getId()), scenario, report, scenario.seed + i));
+        }
+        System.out.printf("Seeded %d users, %d direct chats, %d groups%n", users.size(), directIds.size(), groups.size());
+        return clients;
+    }
+    
+    private static void connect(Scenario scenario, WebSocketStompClient stompClient, JwtUtil jwtUtil, String url,
+                                List<LoadClient> clients, LoadReport report) throws InterruptedException {
+        Semaphore pending = new Semaphore(MAX_PENDING_CONNECTS);
+        long intervalNanos = 1_000_000_000L / Math.max(1, scenario.connectsPerSecond);
+        long start = System.nanoTime();
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        
+        for (int i = 0; i < clients.size(); i++) {
+            long due = start + i * intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            pending.acquire();
+            
+            LoadClient client = clients.get(i);
+            StompHeaders connectHeaders = connectHeaders(jwtUtil, client);
+            futures.add(stompClient.connectAsync(url, new WebSocketHttpHeaders(), connectHeaders, client)
+                    .whenComplete((session, error) -> {
+                        pending.release();
+                        if (error != null) {
+                            report.recordError("connect");
+                        }
+                    }));
+        }
+        
+        futures.forEach(future -> {
+            try {
+                future.join();
+            } catch (RuntimeException e) {
+                // Counted in whenComplete
+            }
+        });
+        long connected = clients.stream().filter(LoadClient::isConnected).count();
+        System.out.printf("Connected %d of %d sessions in %.1fs%n", connected, clients.size(),
+                (System.nanoTime() - start) / 1e9);
+    }
+    
+    // Every session drops at once and reconnects right away, as after a node restart; refused CONNECTs retry
+    // after their retry-after hint, other failures after a second
+    private static boolean reconnectStorm(Scenario scenario, WebSocketStompClient stompClient, JwtUtil jwtUtil,
+                                          String url, List<LoadClient> clients) throws InterruptedException {
+        List<StompHeaders> headers = clients.stream().map(client -> connectHeaders(jwtUtil, client)).toList();
+        clients.forEach(client -> client.setReconnecting(true));
+        clients.forEach(LoadClient::disconnect);
+        Thread.sleep(1000);
+        
+        ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor();
+        CountDownLatch recovered = new CountDownLatch(clients.size());
+        AtomicLong refused = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long start = System.nanoTime();
+        for (int i = 0; i < clients.size(); i++) {
+            reconnect(stompClient, url, clients.get(i), headers.get(i), retries, recovered, refused, failed);
+        }
+        
+        boolean complete = recovered.await(scenario.stormTimeoutSeconds, TimeUnit.SECONDS);
+        long back = clients.size() - recovered.getCount();
+        System.out.printf("Reconnect storm: %d of %d sessions back in %.1fs; %d CONNECTs refused with retry-after, "
+                        + "%d other failed attempts%n", back, clients.size(), (System.nanoTime() - start) / 1e9,
+                refused.get(), failed.get());
+        retries.shutdownNow();
+        return complete;
+    }
+    
+    private static void reconnect(WebSocketStompClient stompClient, String url, LoadClient client, StompHeaders headers,
+                                  ScheduledExecutorService retries, CountDownLatch recovered,
+                                  AtomicLong refused, AtomicLong failed) {
+        stompClient.connectAsync(url, new WebSocketHttpHeaders(), headers, client).whenComplete((session, error) -> {
+            if (error == null) {
+                recovered.countDown();
+                return;
+            }
+            long retryAfter = client.takeRetryAfter();
+            (retryAfter > 0 ? refused : failed).incrementAndGet();
+            retries.schedule(() -> reconnect(stompClient, url, client, headers, retries, recovered, refused, failed),
+                    retryAfter > 0 ? retryAfter : 1000, TimeUnit.MILLISECONDS);
+        });
+    }
+    
+    private static StompHeaders connectHeaders(JwtUtil jwtUtil, LoadClient client) {
+        StompHeaders headers = new StompHeaders();
+        headers.add("Authorization", "Bearer " + jwtUtil.generateToken(client.getEmail(), client.getUserId()));
+        return headers;
+    }
+    
+    private static void runPhase(int seconds, int intervalSeconds, LoadReport report) throws InterruptedException {
+        long end = System.currentTimeMillis() + seconds * 1000L;
+        while (System.currentTimeMillis() < end) {
+            Thread.sleep(Math.min(intervalSeconds * 1000L, Math.max(1, end - System.currentTimeMillis())));
+            report.interval();
+        }
+    }
+}
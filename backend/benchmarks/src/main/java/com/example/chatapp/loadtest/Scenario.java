@@ -0,0 +1,93 @@
+package com.example.chatapp.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load test parameters, given as {@code --name=value} arguments. Everything
+ * random (chat assignment, operation mix, timing jitter) derives from
+ * {@link #seed}, so a scenario with the same arguments replays the same load.
+ * Arguments of the form {@code --app.some.property=value} are passed to the
+ * application under test as {@code some.property=value}.
+ */
+public class Scenario {
+    
+    String name = "steady";
+    long seed = 42;
+    
+    int users = 1000;
+    int groups = 50;
+    int groupSize = 20;
+    int directPartners = 3;
+    
+    // Operations per session per second, and their mix in percent
+    double rate = 0.2;
+    int sendPercent = 70;
+    int typingPercent = 20;
+    int readPercent = 10;
+    
+    int connectsPerSecond = 200;
+    // After the measured phase, drop every session at once and time how long reconnecting takes
+    boolean reconnectStorm;
+    int stormTimeoutSeconds = 300;
+    int warmupSeconds = 10;
+    int durationSeconds = 60;
+    int reportIntervalSeconds = 5;
+    int workerThreads = 8;
+    int contentBytes = 120;
+    
+    String mongoUri;
+    String output = "target/loadtest";
+    
+    final Map<String, Object> appProperties = new LinkedHashMap<>();
+    
+    static Scenario parse(String[] args) {
+        Scenario scenario = new Scenario();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (key.startsWith("app.")) {
+                scenario.appProperties.put(key.substring(4), value);
+                continue;
+            }
+            switch (key) {
+                case "name" -> scenario.name = value;
+                case "seed" -> scenario.seed = Long.parseLong(value);
+                case "users" -> scenario.users = Integer.parseInt(value);
+                case "groups" -> scenario.groups = Integer.parseInt(value);
+                case "group-size" -> scenario.groupSize = Integer.parseInt(value);
+                case "direct-partners" -> scenario.directPartners = Integer.parseInt(value);
+                case "rate" -> scenario.rate = Double.parseDouble(value);
+                case "send" -> scenario.sendPercent = Integer.parseInt(value);
+                case "typing" -> scenario.typingPercent = Integer.parseInt(value);
+                case "read" -> scenario.readPercent = Integer.parseInt(value);
+                case "connects-per-second" -> scenario.connectsPerSecond = Integer.parseInt(value);
+                case "reconnect-storm" -> scenario.reconnectStorm = Boolean.parseBoolean(value);
+                case "storm-timeout" -> scenario.stormTimeoutSeconds = Integer.parseInt(value);
+                case "warmup" -> scenario.warmupSeconds = Integer.parseInt(value);
+                case "duration" -> scenario.durationSeconds = Integer.parseInt(value);
+                case "report-interval" -> scenario.reportIntervalSeconds = Integer.parseInt(value);
+                case "threads" -> scenario.workerThreads = Integer.parseInt(value);
+                case "content-bytes" -> scenario.contentBytes = Integer.parseInt(value);
+                case "mongo-uri" -> scenario.mongoUri = value;
+                case "output" -> scenario.output = value;
+                default -> throw new IllegalArgumentException("Unknown option --" + key);
+            }
+        }
+        if (scenario.sendPercent + scenario.typingPercent + scenario.readPercent != 100) {
+            throw new IllegalArgumentException("send + typing + read must add up to 100");
+        }
+        return scenario;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s: seed=%d users=%d groups=%d x %d direct-partners=%d rate=%.2f/s mix=%d/%d/%d "
+                        + "warmup=%ds duration=%ds reconnect-storm=%s app=%s",
+                name, seed, users, groups, groupSize, directPartners, rate,
+                sendPercent, typingPercent, readPercent, warmupSeconds, durationSeconds, reconnectStorm, appProperties);
+    }
+}
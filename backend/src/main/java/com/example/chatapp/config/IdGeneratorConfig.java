@@ -0,0 +1,19 @@
+package com.example.chatapp.config;
+
+import com.example.chatapp.util.TimeOrderedIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.security.SecureRandom;
+
+@Configuration
+public class IdGeneratorConfig {
+    
+    // Give each instance its own node id; the random default makes collisions unlikely, not impossible
+    @Bean
+    public TimeOrderedIdGenerator messageIdGenerator(@Value("${message.id.node-id:-1}") long nodeId) {
+        int node = nodeId >= 0 ? (int) nodeId : new SecureRandom().nextInt();
+        return new TimeOrderedIdGenerator(node);
+    }
+}
@@ -1,6 +1,10 @@
 package com.example.chatapp.config;
 
 import com.example.chatapp.security.JwtUtil;
+import com.example.chatapp.websocket.ConnectAdmissionControl;
+import com.example.chatapp.websocket.DestinationAuthorizationInterceptor;
+import com.example.chatapp.websocket.InboundRateLimitInterceptor;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
@@ -13,11 +17,12 @@ import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 @EnableWebSocketMessageBroker
 @Order(Ordered.HIGHEST_PRECEDENCE + 99)
@@ -25,11 +30,14 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 public class WebSocketAuthConfig implements WebSocketMessageBrokerConfigurer {
     
     private final JwtUtil jwtUtil;
-    private final UserDetailsService userDetailsService;
+    private final ConnectAdmissionControl connectAdmissionControl;
+    private final InboundRateLimitInterceptor inboundRateLimitInterceptor;
+    private final DestinationAuthorizationInterceptor destinationAuthorizationInterceptor;
     
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(new ChannelInterceptor() {
+        // Admission runs first so refused CONNECTs never reach token parsing
+        registration.interceptors(connectAdmissionControl, new ChannelInterceptor() {
             @Override
             public Message<?> preSend(Message<?> message, MessageChannel channel) {
                 StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
@@ -37,26 +45,24 @@ public class WebSocketAuthConfig implements WebSocketMessageBrokerConfigurer {
                 if (StompCommand.CONNECT.equals(accessor.getCommand())) {
                     String authToken = accessor.getFirstNativeHeader("Authorization");
                     
+                    // Signature and expiry only; no database access, so reconnect storms stay cheap
                     if (authToken != null && authToken.startsWith("Bearer ")) {
-                        String token = authToken.substring(7);
-                        
-                        try {
-                            String username = jwtUtil.extractUsername(token);
-                            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                        Claims claims = jwtUtil.validateAccessToken(authToken.substring(7));
+                        if (claims != null) {
+                            accessor.setUser(new UsernamePasswordAuthenticationToken(claims.getSubject(), null, List.of()));
                             
-                            if (jwtUtil.validateToken(token, userDetails)) {
-                                UsernamePasswordAuthenticationToken authentication = 
-                                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                                accessor.setUser(authentication);
+                            String userId = claims.get(JwtUtil.USER_ID_CLAIM, String.class);
+                            Map<String, Object> attributes = accessor.getSessionAttributes();
+                            if (userId != null && attributes != null) {
+                                attributes.put(DestinationAuthorizationInterceptor.USER_ID_ATTRIBUTE, userId);
                             }
-                        } catch (Exception e) {
-                            // Invalid token - connection will be rejected
                         }
+                        // Otherwise the connection stays unauthenticated and is rejected
                     }
                 }
                 
                 return message;
             }
-        });
+        }, inboundRateLimitInterceptor, destinationAuthorizationInterceptor);
     }
 }
@@ -1,18 +1,81 @@
 package com.example.chatapp.config;
 
+import com.example.chatapp.websocket.ConnectAdmissionControl;
+import com.example.chatapp.websocket.ConnectAdmissionErrorHandler;
+import com.example.chatapp.websocket.ExactMatchSubscriptionRegistry;
+import com.example.chatapp.websocket.LatencySampler;
+import com.example.chatapp.websocket.OrderedLaneExecutor;
+import com.example.chatapp.websocket.OutboundFlowControlInterceptor;
+import com.example.chatapp.websocket.PayloadCodecInterceptor;
+import com.example.chatapp.websocket.TimedJsonMessageConverter;
+import com.example.chatapp.websocket.TransportHandshakeInterceptor;
+import com.example.chatapp.websocket.WebSocketSessionTracker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     
+    private final WebSocketSessionTracker sessionTracker;
+    private final OutboundFlowControlInterceptor outboundFlowControlInterceptor;
+    private final PayloadCodecInterceptor payloadCodecInterceptor;
+    private final LatencySampler latencySampler;
+    private final ConnectAdmissionControl connectAdmissionControl;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${websocket.outbound.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+    
+    @Value("${websocket.outbound.send-time-limit-ms:15000}")
+    private int sendTimeLimit;
+    
+    @Value("${websocket.inbound.lanes:1024}")
+    private int inboundLanes;
+    
+    @Value("${websocket.inbound.lane-batch-size:64}")
+    private int inboundLaneBatchSize;
+    
+    // MessageBrokerRegistry has no hook for the simple broker's subscription registry
+    @Bean
+    public static BeanPostProcessor subscriptionRegistryInstaller(
+            @Value("${websocket.broker.exact-match-registry:true}") boolean exactMatch) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (exactMatch && bean instanceof SimpleBrokerMessageHandler broker) {
+                    broker.setSubscriptionRegistry(new ExactMatchSubscriptionRegistry());
+                }
+                return bean;
+            }
+        };
+    }
+    
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/user");
+        // User destinations resolve to /queue/...-user{sessionId}, which the broker must own
+        config.enableSimpleBroker("/topic", "/queue");
+        // Inbound lanes handle a chat's messages in order; keep that order on the way out to each session
+        config.setPreservePublishOrder(true);
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
     }
@@ -21,6 +84,46 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws/chat")
                 .setAllowedOriginPatterns("*")
+                .addInterceptors(new TransportHandshakeInterceptor(false, connectAdmissionControl, meterRegistry))
                 .withSockJS();
+        
+        // Plain WebSocket for clients that do not need SockJS fallbacks; may negotiate binary CBOR payloads
+        registry.addEndpoint("/ws/chat-native")
+                .setAllowedOriginPatterns("*")
+                .addInterceptors(new TransportHandshakeInterceptor(true, connectAdmissionControl, meterRegistry));
+        
+        // CONNECTs refused by admission control get an ERROR frame with a retry-after hint
+        registry.setErrorHandler(new ConnectAdmissionErrorHandler());
+    }
+    
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Per-session byte budget; a session that overflows it is terminated by Spring
+        registration.addDecoratorFactory(sessionTracker)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setSendTimeLimit(sendTimeLimit);
+    }
+    
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(new StringMessageConverter());
+        messageConverters.add(new ByteArrayMessageConverter());
+        messageConverters.add(new TimedJsonMessageConverter(objectMapper, meterRegistry));
+        return false;
+    }
+    
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Same pool size as Spring's default inbound executor, with frames ordered per chat
+        OrderedLaneExecutor executor = new OrderedLaneExecutor(inboundLanes, inboundLaneBatchSize);
+        executor.setAllowCoreThreadTimeOut(true);
+        registration.taskExecutor(executor).corePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+        registration.interceptors(latencySampler, payloadCodecInterceptor);
+    }
+    
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Flow control runs first so dropped frames are never transcoded
+        registration.interceptors(outboundFlowControlInterceptor, payloadCodecInterceptor, latencySampler);
     }
 }
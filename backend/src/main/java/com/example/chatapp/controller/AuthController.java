@@ -3,15 +3,23 @@ package com.example.chatapp.controller;
 import com.example.chatapp.model.dto.AuthResponse;
 import com.example.chatapp.model.dto.LoginRequest;
 import com.example.chatapp.model.dto.SignupRequest;
+import com.example.chatapp.security.LoginThrottledException;
 import com.example.chatapp.service.AuthService;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 @RestController
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
@@ -20,43 +28,22 @@ public class AuthController {
     
     private final AuthService authService;
     
+    // Async: the request thread is released while the password is hashed
     @PostMapping("/signup")
-    public ResponseEntity<AuthResponse> signup(@Valid @RequestBody SignupRequest request, 
-                                             HttpServletResponse response) {
+    public CompletableFuture<ResponseEntity<AuthResponse>> signup(@Valid @RequestBody SignupRequest request) {
         try {
-            AuthResponse authResponse = authService.signup(request);
-            
-            // Set HTTP-only cookie for refresh token
-            Cookie refreshCookie = new Cookie("refreshToken", authResponse.getAccessToken());
-            refreshCookie.setHttpOnly(true);
-            refreshCookie.setSecure(false); // Set to true in production with HTTPS
-            refreshCookie.setPath("/");
-            refreshCookie.setMaxAge(7 * 24 * 60 * 60); // 7 days
-            response.addCookie(refreshCookie);
-            
-            return ResponseEntity.ok(authResponse);
+            return authService.signup(request).handle(this::authenticated);
         } catch (Exception e) {
-            return ResponseEntity.badRequest().build();
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
         }
     }
     
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest request,
-                                            HttpServletResponse response) {
+    public CompletableFuture<ResponseEntity<AuthResponse>> login(@Valid @RequestBody LoginRequest request) {
         try {
-            AuthResponse authResponse = authService.login(request);
-            
-            // Set HTTP-only cookie for refresh token
-            Cookie refreshCookie = new Cookie("refreshToken", authResponse.getAccessToken());
-            refreshCookie.setHttpOnly(true);
-            refreshCookie.setSecure(false); // Set to true in production with HTTPS
-            refreshCookie.setPath("/");
-            refreshCookie.setMaxAge(7 * 24 * 60 * 60); // 7 days
-            response.addCookie(refreshCookie);
-            
-            return ResponseEntity.ok(authResponse);
+            return authService.login(request).handle(this::authenticated);
         } catch (Exception e) {
-            return ResponseEntity.badRequest().build();
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
         }
     }
     
@@ -94,4 +81,28 @@ public class AuthController {
             return ResponseEntity.badRequest().build();
         }
     }
+    
+    private ResponseEntity<AuthResponse> authenticated(AuthResponse authResponse, Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            return cause instanceof LoginThrottledException e ? throttled(e) : ResponseEntity.badRequest().build();
+        }
+        
+        // Set HTTP-only cookie for refresh token, as a header since the request thread has already returned
+        ResponseCookie refreshCookie = ResponseCookie.from("refreshToken", authResponse.getAccessToken())
+                .httpOnly(true)
+                .secure(false) // Set to true in production with HTTPS
+                .path("/")
+                .maxAge(Duration.ofDays(7))
+                .build();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, refreshCookie.toString())
+                .body(authResponse);
+    }
+    
+    private ResponseEntity<AuthResponse> throttled(LoginThrottledException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .build();
+    }
 }
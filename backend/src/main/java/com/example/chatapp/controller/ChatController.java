@@ -1,20 +1,26 @@
 package com.example.chatapp.controller;
 
-import com.example.chatapp.model.User;
-import com.example.chatapp.model.Group;
+import com.example.chatapp.model.ChatActivity;
 import com.example.chatapp.model.DirectChat;
+import com.example.chatapp.model.Group;
+import com.example.chatapp.model.projection.UserSummary;
+import com.example.chatapp.service.ChatActivityService;
+import com.example.chatapp.service.ChatMetadataCache;
 import com.example.chatapp.service.UserService;
-import com.example.chatapp.service.GroupService;
 import com.example.chatapp.service.DirectChatService;
+import com.example.chatapp.service.RetentionPolicyService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/chats")
@@ -22,50 +28,72 @@ import java.util.HashMap;
 @CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
 public class ChatController {
     
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_PAGE_SIZE = 200;
+    
     private final UserService userService;
-    private final GroupService groupService;
     private final DirectChatService directChatService;
+    private final ChatActivityService chatActivityService;
+    private final ChatMetadataCache metadataCache;
+    private final RetentionPolicyService retentionPolicyService;
     
     @GetMapping
-    public ResponseEntity<List<Map<String, Object>>> getChatRooms(Authentication authentication) {
+    public ResponseEntity<List<Map<String, Object>>> getChatRooms(@RequestParam(defaultValue = "50") int limit,
+                                                                  @RequestParam(required = false) String before,
+                                                                  Authentication authentication) {
         try {
-            User currentUser = userService.getCurrentUser(authentication.getName());
-            List<Map<String, Object>> chatRooms = new ArrayList<>();
+            UserSummary currentUser = userService.getUserSummary(authentication.getName());
+            int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
             
-            // Get user's groups
-            List<Group> groups = groupService.getUserGroups(authentication.getName());
-            for (Group group : groups) {
-                Map<String, Object> chatRoom = new HashMap<>();
-                chatRoom.put("id", group.getId());
-                chatRoom.put("type", "group");
-                chatRoom.put("name", group.getName());
-                chatRoom.put("avatarUrl", group.getAvatarUrl());
-                chatRoom.put("participants", group.getMembers());
-                chatRoom.put("unreadCount", 0); // TODO: Implement unread count
-                chatRooms.add(chatRoom);
+            // One more than asked, to tell whether there is a next page
+            List<ChatActivity> entries = chatActivityService.getRecentChats(currentUser.getId(), before, pageSize + 1);
+            boolean hasMore = entries.size() > pageSize;
+            if (hasMore) {
+                entries = entries.subList(0, pageSize);
+            }
+            
+            // Resolve the other participants of the page's direct chats in one query
+            Map<String, String> otherUserIds = new HashMap<>();
+            for (ChatActivity entry : entries) {
+                String[] participants = DirectChat.participantIds(entry.getChatId());
+                if (participants != null) {
+                    otherUserIds.put(entry.getChatId(),
+                            participants[0].equals(currentUser.getId()) ? participants[1] : participants[0]);
+                }
             }
+            Map<String, String> names = userService.getUserNames(new HashSet<>(otherUserIds.values()));
             
-            // Get user's direct chats
-            List<DirectChat> directChats = directChatService.getUserDirectChats(currentUser.getId());
-            for (DirectChat directChat : directChats) {
-                // Get the other participant's name
-                String otherUserId = directChat.getParticipants().stream()
-                    .filter(id -> !id.equals(currentUser.getId()))
-                    .findFirst().orElse("Unknown");
-                
-                User otherUser = userService.getUserById(otherUserId);
-                String chatName = otherUser != null ? otherUser.getName() : "Unknown User";
-                
+            List<Map<String, Object>> chatRooms = new ArrayList<>();
+            for (ChatActivity entry : entries) {
                 Map<String, Object> chatRoom = new HashMap<>();
-                chatRoom.put("id", directChat.getId());
-                chatRoom.put("type", "direct");
-                chatRoom.put("name", chatName);
-                chatRoom.put("participants", directChat.getParticipants());
+                String otherUserId = otherUserIds.get(entry.getChatId());
+                if (otherUserId != null) {
+                    chatRoom.put("type", "direct");
+                    chatRoom.put("name", names.getOrDefault(otherUserId, "Unknown User"));
+                    chatRoom.put("participants", List.of(currentUser.getId(), otherUserId));
+                } else {
+                    Optional<Group> group = metadataCache.getGroup(entry.getChatId());
+                    if (group.isEmpty()) {
+                        continue;
+                    }
+                    chatRoom.put("type", "group");
+                    chatRoom.put("name", group.get().getName());
+                    chatRoom.put("avatarUrl", group.get().getAvatarUrl());
+                    chatRoom.put("participants", group.get().getMembers());
+                    chatRoom.put("muted", group.get().getMutedMembers() != null
+                            && group.get().getMutedMembers().contains(currentUser.getId()));
+                }
+                chatRoom.put("id", entry.getChatId());
+                chatRoom.put("lastActivityId", entry.getActivityId());
                 chatRoom.put("unreadCount", 0); // TODO: Implement unread count
                 chatRooms.add(chatRoom);
             }
             
-            return ResponseEntity.ok(chatRooms);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (hasMore) {
+                response.header(NEXT_CURSOR_HEADER, entries.get(entries.size() - 1).getActivityId());
+            }
+            return response.body(chatRooms);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.badRequest().build();
@@ -76,10 +104,10 @@ public class ChatController {
     public ResponseEntity<Map<String, Object>> createDirectChat(@RequestParam String userId,
                                                               Authentication authentication) {
         try {
-            User currentUser = userService.getCurrentUser(authentication.getName());
+            UserSummary currentUser = userService.getUserSummary(authentication.getName());
             
             // Validate the target user exists
-            User targetUser = userService.getUserById(userId);
+            UserSummary targetUser = userService.getUserSummaryById(userId);
             if (targetUser == null) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Target user not found"));
             }
@@ -105,4 +133,24 @@ public class ChatController {
             return ResponseEntity.badRequest().body(Map.of("error", "Failed to create direct chat: " + e.getMessage()));
         }
     }
+    
+    // Sets the chat's own retention in days; without days the chat follows the default again
+    @PutMapping("/{chatId}/retention")
+    public ResponseEntity<Map<String, Object>> setRetention(@PathVariable String chatId,
+                                                            @RequestParam(required = false) Integer days,
+                                                            Authentication authentication) {
+        try {
+            UserSummary currentUser = userService.getUserSummary(authentication.getName());
+            retentionPolicyService.setPolicy(chatId, days, currentUser.getId());
+            
+            Duration retention = retentionPolicyService.retentionFor(chatId);
+            Map<String, Object> result = new HashMap<>();
+            result.put("chatId", chatId);
+            result.put("retentionDays", retention != null ? retention.toDays() : null);
+            result.put("inherited", days == null);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
 }
@@ -1,7 +1,10 @@
 package com.example.chatapp.controller;
 
+import com.example.chatapp.model.CleanupJob;
 import com.example.chatapp.model.Group;
 import com.example.chatapp.model.dto.GroupRequest;
+import com.example.chatapp.model.dto.GroupResponse;
+import com.example.chatapp.model.projection.GroupSummary;
 import com.example.chatapp.service.GroupService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -30,9 +33,20 @@ public class GroupController {
     }
     
     @GetMapping
-    public ResponseEntity<List<Group>> getUserGroups(Authentication authentication) {
+    public ResponseEntity<List<GroupResponse>> getUserGroups(Authentication authentication) {
         try {
-            List<Group> groups = groupService.getUserGroups(authentication.getName());
+            List<GroupSummary> groups = groupService.getUserGroups(authentication.getName());
+            return ResponseEntity.ok(GroupResponse.from(groups));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/search")
+    public ResponseEntity<List<Group>> searchGroups(@RequestParam String query,
+                                                    @RequestParam(defaultValue = "20") int limit) {
+        try {
+            List<Group> groups = groupService.searchGroups(query, limit);
             return ResponseEntity.ok(groups);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -75,12 +89,35 @@ public class GroupController {
         }
     }
     
+    @PutMapping("/{id}/mute")
+    public ResponseEntity<Group> setMuted(@PathVariable String id,
+                                        @RequestParam boolean muted,
+                                        Authentication authentication) {
+        try {
+            Group group = groupService.setMuted(id, muted, authentication.getName());
+            return ResponseEntity.ok(group);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    // The group is gone at once; its messages and files follow in the background job returned here
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteGroup(@PathVariable String id,
-                                          Authentication authentication) {
+    public ResponseEntity<CleanupJob> deleteGroup(@PathVariable String id,
+                                                  Authentication authentication) {
+        try {
+            CleanupJob job = groupService.deleteGroup(id, authentication.getName());
+            return ResponseEntity.accepted().body(job);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/cleanup/{jobId}")
+    public ResponseEntity<CleanupJob> getCleanupJob(@PathVariable String jobId,
+                                                    Authentication authentication) {
         try {
-            groupService.deleteGroup(id, authentication.getName());
-            return ResponseEntity.ok().build();
+            return ResponseEntity.ok(groupService.getCleanupJob(jobId, authentication.getName()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -2,13 +2,21 @@ package com.example.chatapp.controller;
 
 import com.example.chatapp.model.Message;
 import com.example.chatapp.model.dto.MessageRequest;
+import com.example.chatapp.model.dto.MessageResponse;
+import com.example.chatapp.model.dto.SyncRequest;
+import com.example.chatapp.model.dto.SyncResponse;
 import com.example.chatapp.service.MessageService;
+import com.example.chatapp.service.MessageSyncService;
+import com.example.chatapp.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -18,20 +26,34 @@ import java.util.Map;
 public class MessageController {
     
     private final MessageService messageService;
+    private final MessageSyncService messageSyncService;
+    private final UserService userService;
     
     @GetMapping
     public ResponseEntity<Map<String, Object>> getMessages(
             @RequestParam String chatId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "50") int size) {
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String before) {
         try {
-            Page<Message> messagesPage = messageService.getMessages(chatId, page, size);
+            Map<String, Object> response = new HashMap<>();
+            List<Message> messages;
             
-            Map<String, Object> response = Map.of(
-                "messages", messagesPage.getContent(),
-                "hasMore", messagesPage.hasNext(),
-                "totalElements", messagesPage.getTotalElements()
-            );
+            // Message ids are time-ordered, so the oldest id seen is a complete cursor for older history
+            if (before != null && !before.isEmpty()) {
+                Slice<Message> slice = messageService.getMessagesBefore(chatId, before, size);
+                messages = slice.getContent();
+                response.put("hasMore", slice.hasNext());
+            } else {
+                Page<Message> messagesPage = messageService.getMessages(chatId, page, size);
+                messages = messagesPage.getContent();
+                response.put("hasMore", messagesPage.hasNext());
+                response.put("totalElements", messagesPage.getTotalElements());
+            }
+            response.put("messages", MessageResponse.from(messages));
+            if (!messages.isEmpty()) {
+                response.put("nextCursor", messages.get(messages.size() - 1).getId());
+            }
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -39,25 +61,45 @@ public class MessageController {
         }
     }
     
+    @GetMapping("/pinned")
+    public ResponseEntity<List<MessageResponse>> getPinnedMessages(@RequestParam String chatId) {
+        try {
+            return ResponseEntity.ok(MessageResponse.from(messageService.getPinnedMessages(chatId)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @PostMapping("/sync")
+    public ResponseEntity<SyncResponse> syncMessages(@RequestBody SyncRequest request,
+                                                     Authentication authentication) {
+        try {
+            String userId = userService.getUserSummary(authentication.getName()).getId();
+            return ResponseEntity.ok(messageSyncService.sync(userId, request.getCursors()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @PostMapping
-    public ResponseEntity<Message> sendMessage(@RequestBody MessageRequest request,
+    public ResponseEntity<MessageResponse> sendMessage(@RequestBody MessageRequest request,
                                              Authentication authentication) {
         try {
             Message message = messageService.sendMessage(request, authentication.getName());
-            return ResponseEntity.ok(message);
+            return ResponseEntity.ok(MessageResponse.from(message));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<Message> updateMessage(@PathVariable String id,
+    public ResponseEntity<MessageResponse> updateMessage(@PathVariable String id,
                                                @RequestBody Map<String, String> request,
                                                Authentication authentication) {
         try {
             String content = request.get("content");
             Message message = messageService.updateMessage(id, content, authentication.getName());
-            return ResponseEntity.ok(message);
+            return ResponseEntity.ok(MessageResponse.from(message));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -75,24 +117,24 @@ public class MessageController {
     }
     
     @PostMapping("/{id}/react")
-    public ResponseEntity<Message> reactToMessage(@PathVariable String id,
+    public ResponseEntity<MessageResponse> reactToMessage(@PathVariable String id,
                                                 @RequestBody Map<String, String> request,
                                                 Authentication authentication) {
         try {
             String emoji = request.get("emoji");
             Message message = messageService.reactToMessage(id, emoji, authentication.getName());
-            return ResponseEntity.ok(message);
+            return ResponseEntity.ok(MessageResponse.from(message));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
     
     @PutMapping("/{id}/pin")
-    public ResponseEntity<Message> pinMessage(@PathVariable String id,
+    public ResponseEntity<MessageResponse> pinMessage(@PathVariable String id,
                                             Authentication authentication) {
         try {
             Message message = messageService.pinMessage(id, authentication.getName());
-            return ResponseEntity.ok(message);
+            return ResponseEntity.ok(MessageResponse.from(message));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -1,7 +1,9 @@
 package com.example.chatapp.controller;
 
 import com.example.chatapp.model.User;
+import com.example.chatapp.model.dto.UserResponse;
 import com.example.chatapp.model.dto.UserUpdateRequest;
+import com.example.chatapp.model.projection.UserSummary;
 import com.example.chatapp.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -21,17 +23,17 @@ public class UserController {
     private final UserService userService;
     
     @GetMapping("/me")
-    public ResponseEntity<User> getCurrentUser(Authentication authentication) {
+    public ResponseEntity<UserResponse> getCurrentUser(Authentication authentication) {
         try {
             User user = userService.getCurrentUser(authentication.getName());
-            return ResponseEntity.ok(user);
+            return ResponseEntity.ok(UserResponse.from(user));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<User> updateUser(@PathVariable String id, 
+    public ResponseEntity<UserResponse> updateUser(@PathVariable String id, 
                                          @RequestBody UserUpdateRequest request,
                                          Authentication authentication) {
         try {
@@ -41,7 +43,7 @@ public class UserController {
             }
             
             User updatedUser = userService.updateUser(id, request);
-            return ResponseEntity.ok(updatedUser);
+            return ResponseEntity.ok(UserResponse.from(updatedUser));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -50,7 +52,7 @@ public class UserController {
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getUserStats(Authentication authentication) {
         try {
-            User user = userService.getCurrentUser(authentication.getName());
+            UserSummary user = userService.getUserSummary(authentication.getName());
             Map<String, Object> stats = userService.getUserStats(user.getId());
             return ResponseEntity.ok(stats);
         } catch (Exception e) {
@@ -59,10 +61,11 @@ public class UserController {
     }
     
     @GetMapping("/search")
-    public ResponseEntity<List<User>> searchUsers(@RequestParam String query) {
+    public ResponseEntity<List<UserResponse>> searchUsers(@RequestParam String query,
+                                                  @RequestParam(defaultValue = "20") int limit) {
         try {
-            List<User> users = userService.searchUsers(query);
-            return ResponseEntity.ok(users);
+            List<User> users = userService.searchUsers(query, limit);
+            return ResponseEntity.ok(users.stream().map(UserResponse::from).toList());
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
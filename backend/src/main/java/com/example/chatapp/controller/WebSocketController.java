@@ -1,63 +1,81 @@
 package com.example.chatapp.controller;
 
+import com.example.chatapp.model.DirectChat;
 import com.example.chatapp.model.Message;
+import com.example.chatapp.model.User;
+import com.example.chatapp.model.dto.AckRequest;
 import com.example.chatapp.model.dto.MessageRequest;
+import com.example.chatapp.model.dto.MessageResponse;
+import com.example.chatapp.model.dto.PendingDeliveryBatch;
+import com.example.chatapp.service.DeliveryStatusService;
+import com.example.chatapp.service.GroupFanOutService;
 import com.example.chatapp.service.MessageService;
+import com.example.chatapp.service.PendingDeliveryService;
 import com.example.chatapp.service.UserService;
+import com.example.chatapp.websocket.LatencySampler;
+import com.example.chatapp.websocket.MessagePipelineMetrics;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
 
 import java.security.Principal;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Controller
 @RequiredArgsConstructor
 public class WebSocketController {
     
+    private static final int MAX_ACKS_PER_FRAME = 500;
+    
     private final SimpMessagingTemplate messagingTemplate;
     private final MessageService messageService;
+    private final PendingDeliveryService pendingDeliveryService;
+    private final DeliveryStatusService deliveryStatusService;
+    private final GroupFanOutService groupFanOutService;
     private final UserService userService;
+    private final MessagePipelineMetrics pipelineMetrics;
+    private final LatencySampler latencySampler;
     
     @MessageMapping("/chat.send")
-    public void sendMessage(@Payload MessageRequest messageRequest, Principal principal) {
+    public void sendMessage(@Payload MessageRequest messageRequest, Principal principal,
+                            @Header(name = LatencySampler.STAMP_HEADER, required = false) LatencySampler.Stamp stamp) {
+        Timer.Sample sample = pipelineMetrics.start();
+        if (stamp != null) {
+            latencySampler.handlerStarted(stamp);
+        }
         try {
-            Message message = messageService.sendMessage(messageRequest, principal.getName());
-            
-            // Send to specific chat room topic (all participants will get it)
-            messagingTemplate.convertAndSend("/topic/chat." + message.getChatId(), message);
-            
-            // For direct chats, also send to each participant's personal queue
-            if (message.getChatId().startsWith("direct_")) {
-                // Extract user IDs from direct chat ID format: "direct_userId1_userId2"
-                String[] parts = message.getChatId().split("_");
-                if (parts.length >= 3) {
-                    String userId1 = parts[1];
-                    String userId2 = parts[2];
-                    
-                    // Send to both participants' personal queues
-                    messagingTemplate.convertAndSendToUser(userId1, "/queue/messages", message);
-                    messagingTemplate.convertAndSendToUser(userId2, "/queue/messages", message);
-                }
-            }
-            
-            // Send to receiver's personal queue if receiverId is explicitly set
-            if (message.getReceiverId() != null) {
-                messagingTemplate.convertAndSendToUser(
-                    message.getReceiverId(), 
-                    "/queue/messages", 
-                    message
-                );
-            }
+            User sender = pipelineMetrics.stage("auth", () -> userService.getCurrentUser(principal.getName()));
+            MessageService.SendResult result = pipelineMetrics.stage("persist", () -> messageService.send(messageRequest, sender));
+            Message message = result.message();
             
-            // Send to group members if it's a group message
-            if (message.getGroupId() != null) {
-                messagingTemplate.convertAndSend("/topic/group." + message.getGroupId(), message);
+            // A resend of a stored message was already fanned out; only the sender needs it again
+            if (result.duplicate()) {
+                messagingTemplate.convertAndSendToUser(principal.getName(), PendingDeliveryService.USER_QUEUE,
+                        MessageResponse.from(message));
+                pipelineMetrics.finish(sample, "duplicate");
+                return;
             }
             
+            // Sampled frames carry their latency stamps to every recipient
+            Map<String, Object> headers = stamp != null
+                    ? latencySampler.outboundHeaders(stamp, LatencySampler.epochMicros())
+                    : null;
+            pipelineMetrics.stage("fanout", () -> {
+                fanOut(message, headers);
+                return null;
+            });
+            pipelineMetrics.finish(sample, "success");
         } catch (Exception e) {
+            pipelineMetrics.finish(sample, "error");
             // Handle error - could send error message back to sender
             messagingTemplate.convertAndSendToUser(
                 principal.getName(),
@@ -67,6 +85,41 @@ public class WebSocketController {
         }
     }
     
+    private void fanOut(Message message, Map<String, Object> headers) {
+        MessageResponse payload = MessageResponse.from(message);
+        
+        // Group messages go through their topics, or per member shard for large groups
+        if (message.getGroupId() != null) {
+            pipelineMetrics.deliver("group", () -> groupFanOutService.deliver(message, payload, headers));
+            return;
+        }
+        
+        // Send to specific chat room topic (all participants will get it)
+        pipelineMetrics.deliver("chat", () ->
+                messagingTemplate.convertAndSend("/topic/chat." + message.getChatId(), payload, headers));
+        
+        // For direct chats, also send to each participant's personal queue, and the receiver's if set
+        Set<String> recipients = new LinkedHashSet<>();
+        String[] participants = DirectChat.participantIds(message.getChatId());
+        if (participants != null) {
+            recipients.addAll(Arrays.asList(participants));
+        }
+        if (message.getReceiverId() != null) {
+            recipients.add(message.getReceiverId());
+        }
+        if (!recipients.isEmpty()) {
+            pipelineMetrics.deliver("user", () ->
+                    pendingDeliveryService.deliverToUsers(message, payload, headers, recipients));
+        }
+    }
+    
+    // Messages queued while the user was offline, sent straight back to the subscribing session
+    @SubscribeMapping("/deliveries.pending")
+    public PendingDeliveryBatch drainPendingDeliveries(Principal principal,
+                                                       @Header(name = "cursor", required = false) String cursor) {
+        return pendingDeliveryService.drain(userService.getUserSummary(principal.getName()).getId(), cursor);
+    }
+    
     @MessageMapping("/chat.typing")
     public void handleTyping(@Payload Map<String, Object> typingData, Principal principal) {
         try {
@@ -90,20 +143,34 @@ public class WebSocketController {
         }
     }
     
+    // Batched delivered/read acks; applied and reported to senders by the next flush
+    @MessageMapping("/chat.ack")
+    public void acknowledge(@Payload AckRequest ack, Principal principal) {
+        String userId = userService.getUserSummary(principal.getName()).getId();
+        deliveryStatusService.ack(userId, cap(ack.getDelivered()), Message.MessageStatus.DELIVERED);
+        deliveryStatusService.ack(userId, cap(ack.getRead()), Message.MessageStatus.READ);
+    }
+    
     @MessageMapping("/chat.read")
     public void markAsRead(@Payload Map<String, String> readData, Principal principal) {
-        try {
-            String messageId = readData.get("messageId");
-            messageService.markAsRead(messageId, principal.getName());
-            
-            // Optionally broadcast read receipt
-            messagingTemplate.convertAndSend("/topic/read." + messageId, Map.of(
-                "messageId", messageId,
-                "readBy", principal.getName()
-            ));
-            
-        } catch (Exception e) {
-            // Handle error silently
+        String messageId = readData.get("messageId");
+        if (messageId != null) {
+            String userId = userService.getUserSummary(principal.getName()).getId();
+            deliveryStatusService.ack(userId, List.of(messageId), Message.MessageStatus.READ);
+        }
+    }
+    
+    private static List<String> cap(List<String> messageIds) {
+        return messageIds == null || messageIds.size() <= MAX_ACKS_PER_FRAME
+                ? messageIds
+                : messageIds.subList(0, MAX_ACKS_PER_FRAME);
+    }
+    
+    @MessageMapping("/chat.latency")
+    public void reportLatency(@Payload Map<String, Object> report) {
+        // {"enqueued": <x-enqueued header value>, "receivedAt": <client epoch millis>}
+        if (report.get("enqueued") instanceof Number enqueued && report.get("receivedAt") instanceof Number receivedAt) {
+            latencySampler.clientReceived(enqueued.longValue(), (long) (receivedAt.doubleValue() * 1000));
         }
     }
 }
@@ -0,0 +1,40 @@
+package com.example.chatapp.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * One user's entry for one chat in that user's activity-ordered chat list.
+ * {@code activityId} is the id of the chat's latest message, or an id minted
+ * when the user joined; ids are time-ordered hex strings, so the newest chats
+ * are a range scan of the user's index entries and the id doubles as the page
+ * cursor.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "chat_activity")
+@CompoundIndex(name = "user_activity", def = "{'userId': 1, 'activityId': -1}")
+public class ChatActivity {
+    
+    @Id
+    private String id;
+    
+    private String userId;
+    
+    @Indexed
+    private String chatId;
+    
+    private String activityId;
+    
+    public static String id(String userId, String chatId) {
+        return userId + ":" + chatId;
+    }
+}
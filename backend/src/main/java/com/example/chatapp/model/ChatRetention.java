@@ -0,0 +1,32 @@
+package com.example.chatapp.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Retention policy of one chat, overriding {@code message.retention.default}.
+ * Only chats with their own policy have a document.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "chat_retention")
+public class ChatRetention {
+    
+    // The chat id
+    @Id
+    private String id;
+    
+    private int retentionDays;
+    
+    private String updatedBy;
+    
+    private LocalDateTime updatedAt;
+}
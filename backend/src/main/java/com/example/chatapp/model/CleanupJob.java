@@ -0,0 +1,68 @@
+package com.example.chatapp.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Background removal of a deleted group's messages and files. The job records
+ * the id of the last message it handled after every batch, so whichever
+ * instance picks it up next, after a restart or an expired lease, continues
+ * from there. Finished jobs are kept for 30 days.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "cleanup_jobs")
+@CompoundIndex(name = "status_lease", def = "{'status': 1, 'leaseUntil': 1}")
+public class CleanupJob {
+    
+    @Id
+    private String id;
+    
+    private String groupId;
+    
+    private String requestedBy;
+    
+    // The group's avatar, deleted when the messages are gone
+    private String avatarUrl;
+    
+    @Builder.Default
+    private JobStatus status = JobStatus.PENDING;
+    
+    // Id of the last message handled; the next batch starts after it
+    private String cursor;
+    
+    private long messagesDeleted;
+    
+    private long filesDeleted;
+    
+    // Messages whose file could not be deleted, handed to the retention purge to retry
+    private long filesPostponed;
+    
+    // Instance working on the job, until leaseUntil
+    private String owner;
+    
+    private LocalDateTime leaseUntil;
+    
+    private LocalDateTime createdAt;
+    
+    private LocalDateTime startedAt;
+    
+    private LocalDateTime updatedAt;
+    
+    @Indexed(name = "finished_ttl", expireAfter = "30d")
+    private LocalDateTime finishedAt;
+    
+    public enum JobStatus {
+        PENDING, RUNNING, DONE
+    }
+}
@@ -36,4 +36,13 @@ public class DirectChat {
         sortedIds.sort(String::compareTo);
         return "direct_" + String.join("_", sortedIds);
     }
+    
+    // Participant ids encoded in a direct chat id ("direct_userId1_userId2"), or null for other chats
+    public static String[] participantIds(String chatId) {
+        if (chatId == null || !chatId.startsWith("direct_")) {
+            return null;
+        }
+        String[] parts = chatId.split("_");
+        return parts.length >= 3 ? new String[] { parts[1], parts[2] } : null;
+    }
 }
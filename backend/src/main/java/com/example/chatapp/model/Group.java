@@ -30,6 +30,10 @@ public class Group {
     @Builder.Default
     private List<String> members = new ArrayList<>();
     
+    // Members who muted the group; they still receive messages, flagged as muted
+    @Builder.Default
+    private List<String> mutedMembers = new ArrayList<>();
+    
     @CreatedDate
     private LocalDateTime createdAt;
     
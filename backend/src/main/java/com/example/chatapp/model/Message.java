@@ -8,6 +8,7 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 
 import java.time.LocalDateTime;
@@ -19,7 +20,12 @@ import java.util.ArrayList;
 @AllArgsConstructor
 @Builder
 @Document(collection = "messages")
+@CompoundIndex(name = "chat_edited", def = "{'chatId': 1, 'editedAt': 1, '_id': 1}")
+@CompoundIndex(name = "chat_id", def = "{'chatId': 1, '_id': -1}")
+@CompoundIndex(name = "sender_client_message", def = "{'senderId': 1, 'clientMessageId': 1}", unique = true,
+        partialFilter = "{'clientMessageId': {'$exists': true}}")
 public class Message {
+    // Assigned by MessageService from a TimeOrderedIdGenerator, so ids sort by send time
     @Id
     private String id;
     
@@ -59,6 +65,16 @@ public class Message {
     
     private Long fileSize;
     
+    private String clientMessageId;
+    
+    // Retention expiry of a message without an attachment; the TTL index deletes it then
+    @Indexed(name = "expire_ttl", expireAfter = "0s")
+    private LocalDateTime expireAt;
+    
+    // Retention expiry of a message with an attachment, deleted with its file by RetentionPurgeService
+    @Indexed(name = "purge_due", sparse = true)
+    private LocalDateTime purgeAt;
+    
     public enum MessageType {
         TEXT, IMAGE, FILE
     }
@@ -0,0 +1,38 @@
+package com.example.chatapp.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Record of a deleted message, kept so that delta sync can report deletions.
+ * Tombstones expire after {@link #RETENTION}; sync cursors older than that
+ * are answered with a reset.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "message_tombstones")
+@CompoundIndex(name = "chat_deleted", def = "{'chatId': 1, 'deletedAt': 1}")
+public class MessageTombstone {
+    public static final Duration RETENTION = Duration.ofDays(30);
+    
+    @Id
+    private String id;
+    
+    private String messageId;
+    
+    private String chatId;
+    
+    @Indexed(name = "deleted_ttl", expireAfter = "30d")
+    private LocalDateTime deletedAt;
+}
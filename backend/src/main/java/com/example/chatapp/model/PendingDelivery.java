@@ -0,0 +1,36 @@
+package com.example.chatapp.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * A message waiting for a recipient who had no session when it was sent.
+ * Only the ids are stored; the messages are loaded when the queue is drained.
+ * Entries that are never drained expire after seven days, by which time a
+ * returning client is better served by delta sync.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "pending_deliveries")
+@CompoundIndex(name = "user_pending", def = "{'userId': 1, '_id': 1}")
+public class PendingDelivery {
+    @Id
+    private String id;
+    
+    private String userId;
+    
+    private String messageId;
+    
+    @Indexed(name = "queued_ttl", expireAfter = "7d")
+    private LocalDateTime queuedAt;
+}
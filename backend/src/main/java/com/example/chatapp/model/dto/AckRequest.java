@@ -0,0 +1,15 @@
+package com.example.chatapp.model.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class AckRequest {
+    // Ids of messages received since the last ack
+    private List<String> delivered = new ArrayList<>();
+    
+    // Ids of messages the user has seen; implies delivered
+    private List<String> read = new ArrayList<>();
+}
@@ -0,0 +1,34 @@
+package com.example.chatapp.model.dto;
+
+import com.example.chatapp.model.projection.GroupSummary;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.List;
+
+// A group as listed for one of its members; never carries who muted it
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GroupResponse {
+    private String id;
+    private String name;
+    private String avatarUrl;
+    private List<String> members;
+    
+    public static GroupResponse from(GroupSummary group) {
+        return GroupResponse.builder()
+                .id(group.getId())
+                .name(group.getName())
+                .avatarUrl(group.getAvatarUrl())
+                .members(group.getMembers())
+                .build();
+    }
+    
+    public static List<GroupResponse> from(List<GroupSummary> groups) {
+        return groups.stream().map(GroupResponse::from).toList();
+    }
+}
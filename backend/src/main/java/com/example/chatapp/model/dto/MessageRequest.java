@@ -13,4 +13,7 @@ public class MessageRequest {
     private String fileUrl;
     private String fileName;
     private Long fileSize;
+    
+    // Optional, generated by the client; a resend with the same id returns the stored message
+    private String clientMessageId;
 }
@@ -0,0 +1,79 @@
+package com.example.chatapp.model.dto;
+
+import com.example.chatapp.model.Message;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Wire form of a message for REST responses and STOMP broadcasts
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MessageResponse {
+    private String id;
+    private String chatId;
+    private String senderId;
+    private String receiverId;
+    private String groupId;
+    private String content;
+    private Message.MessageType type;
+    private LocalDateTime timestamp;
+    private LocalDateTime editedAt;
+    private Message.MessageStatus status;
+    private List<Reaction> reactions;
+    private boolean pinned;
+    private String fileUrl;
+    private String fileName;
+    private Long fileSize;
+    private String clientMessageId;
+    
+    // Reactor names are resolved by clients from user ids
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Reaction {
+        private String emoji;
+        private String userId;
+    }
+    
+    public static MessageResponse from(Message message) {
+        List<Reaction> reactions = new ArrayList<>();
+        if (message.getReactions() != null) {
+            for (Message.MessageReaction reaction : message.getReactions()) {
+                reactions.add(new Reaction(reaction.getEmoji(), reaction.getUserId()));
+            }
+        }
+        return MessageResponse.builder()
+                .id(message.getId())
+                .chatId(message.getChatId())
+                .senderId(message.getSenderId())
+                .receiverId(message.getReceiverId())
+                .groupId(message.getGroupId())
+                .content(message.getContent())
+                .type(message.getType())
+                .timestamp(message.getTimestamp())
+                .editedAt(message.getEditedAt())
+                .status(message.getStatus())
+                .reactions(reactions)
+                .pinned(Boolean.TRUE.equals(message.getPinned()))
+                .fileUrl(message.getFileUrl())
+                .fileName(message.getFileName())
+                .fileSize(message.getFileSize())
+                .clientMessageId(message.getClientMessageId())
+                .build();
+    }
+    
+    public static List<MessageResponse> from(List<Message> messages) {
+        List<MessageResponse> responses = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            responses.add(from(message));
+        }
+        return responses;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.chatapp.model.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingDeliveryBatch {
+    // Oldest first
+    private List<MessageResponse> messages = new ArrayList<>();
+    
+    // More was queued than one batch holds; drain again, passing the cursor, for the next batch
+    private boolean truncated;
+    
+    // Where the next drain resumes; sent back as the "cursor" header of the next subscription
+    private String cursor;
+}
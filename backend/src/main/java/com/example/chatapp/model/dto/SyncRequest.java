@@ -0,0 +1,12 @@
+package com.example.chatapp.model.dto;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+public class SyncRequest {
+    // chatId -> cursor returned by the previous sync (or null to request a reset)
+    private Map<String, String> cursors = new LinkedHashMap<>();
+}
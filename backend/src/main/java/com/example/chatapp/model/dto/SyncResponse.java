@@ -0,0 +1,34 @@
+package com.example.chatapp.model.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class SyncResponse {
+    // Only chats the caller belongs to; other requested chat ids are left out
+    private Map<String, ChatDelta> chats = new LinkedHashMap<>();
+    
+    // True when the response was truncated; sync again with the returned cursors
+    private boolean hasMore;
+    
+    @Data
+    public static class ChatDelta {
+        // New or changed messages, oldest change first
+        private List<MessageResponse> messages = new ArrayList<>();
+        private List<String> deletedIds = new ArrayList<>();
+        
+        // Always set and always moves forward, also for chats with no changes
+        private String cursor;
+        
+        // How long the chat keeps messages, or null for forever. Messages the TTL index
+        // removes are not reported in deletedIds; clients drop messages older than this.
+        private Long retentionDays;
+        
+        // The cursor was missing, expired or too far behind; reload the chat from page 0, then keep the cursor
+        private boolean reset;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.chatapp.model.dto;
+
+import com.example.chatapp.model.User;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+// Public view of a user; never carries the password hash
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserResponse {
+    private String id;
+    private String name;
+    private String email;
+    private String bio;
+    private String avatarUrl;
+    private LocalDateTime joinedAt;
+    private LocalDateTime lastSeen;
+    private Boolean isOnline;
+    private User.PrivacySettings privacySettings;
+    
+    public static UserResponse from(User user) {
+        return UserResponse.builder()
+                .id(user.getId())
+                .name(user.getName())
+                .email(user.getEmail())
+                .bio(user.getBio())
+                .avatarUrl(user.getAvatarUrl())
+                .joinedAt(user.getJoinedAt())
+                .lastSeen(user.getLastSeen())
+                .isOnline(user.getIsOnline())
+                .privacySettings(user.getPrivacySettings())
+                .build();
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.chatapp.model.projection;
+
+import java.util.List;
+
+// Who a group message goes to
+public interface GroupAudience {
+    List<String> getMembers();
+    
+    List<String> getMutedMembers();
+}
@@ -0,0 +1,14 @@
+package com.example.chatapp.model.projection;
+
+import java.util.List;
+
+// What the chat list shows for a group
+public interface GroupSummary {
+    String getId();
+    
+    String getName();
+    
+    String getAvatarUrl();
+    
+    List<String> getMembers();
+}
@@ -0,0 +1,9 @@
+package com.example.chatapp.model.projection;
+
+import java.time.LocalDateTime;
+
+public interface UserActivity {
+    LocalDateTime getJoinedAt();
+    
+    LocalDateTime getLastSeen();
+}
@@ -0,0 +1,10 @@
+package com.example.chatapp.model.projection;
+
+// Closed projection of User; Spring Data reads only these fields
+public interface UserSummary {
+    String getId();
+    
+    String getName();
+    
+    String getEmail();
+}
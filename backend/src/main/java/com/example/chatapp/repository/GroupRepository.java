@@ -1,19 +1,21 @@
 package com.example.chatapp.repository;
 
 import com.example.chatapp.model.Group;
+import com.example.chatapp.model.projection.GroupAudience;
+import com.example.chatapp.model.projection.GroupSummary;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface GroupRepository extends MongoRepository<Group, String> {
-    @Query("{'members': ?0}")
-    List<Group> findByMembersContaining(String userId);
-    
     List<Group> findByCreatedBy(String createdBy);
     
-    @Query("{'name': {$regex: ?0, $options: 'i'}}")
-    List<Group> findByNameContainingIgnoreCase(String name);
+    @Query(value = "{'members': ?0}", fields = "{'name': 1, 'avatarUrl': 1, 'members': 1}")
+    List<GroupSummary> findSummariesByMember(String userId);
+    
+    Optional<GroupAudience> findAudienceById(String id);
 }
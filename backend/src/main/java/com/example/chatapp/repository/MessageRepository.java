@@ -1,17 +1,23 @@
 package com.example.chatapp.repository;
 
 import com.example.chatapp.model.Message;
+import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface MessageRepository extends MongoRepository<Message, String> {
-    Page<Message> findByChatIdOrderByTimestampDesc(String chatId, Pageable pageable);
+    Page<Message> findByChatId(String chatId, Pageable pageable);
+    
+    // Range operators are not converted like equality on ids, so the bound is passed as an ObjectId
+    Slice<Message> findByChatIdAndIdLessThan(String chatId, ObjectId id, Pageable pageable);
     
     List<Message> findByChatIdAndPinnedTrue(String chatId);
     
@@ -23,6 +29,8 @@ public interface MessageRepository extends MongoRepository<Message, String> {
     
     long countBySenderId(String senderId);
     
+    Optional<Message> findBySenderIdAndClientMessageId(String senderId, String clientMessageId);
+    
     @Query("{'$or': [{'senderId': ?0, 'receiverId': ?1}, {'senderId': ?1, 'receiverId': ?0}]}")
     Page<Message> findDirectMessages(String userId1, String userId2, Pageable pageable);
     
@@ -0,0 +1,9 @@
+package com.example.chatapp.repository;
+
+import com.example.chatapp.model.MessageTombstone;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MessageTombstoneRepository extends MongoRepository<MessageTombstone, String> {
+}
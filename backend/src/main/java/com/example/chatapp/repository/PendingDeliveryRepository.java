@@ -0,0 +1,13 @@
+package com.example.chatapp.repository;
+
+import com.example.chatapp.model.PendingDelivery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PendingDeliveryRepository extends MongoRepository<PendingDelivery, String> {
+    List<PendingDelivery> findByUserId(String userId, Pageable pageable);
+}
@@ -1,10 +1,12 @@
 package com.example.chatapp.repository;
 
 import com.example.chatapp.model.User;
+import com.example.chatapp.model.projection.UserActivity;
+import com.example.chatapp.model.projection.UserSummary;
 import org.springframework.data.mongodb.repository.MongoRepository;
-import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
@@ -12,11 +14,13 @@ import java.util.List;
 public interface UserRepository extends MongoRepository<User, String> {
     Optional<User> findByEmail(String email);
     
-    @Query("{'name': {$regex: ?0, $options: 'i'}}")
-    List<User> findByNameContainingIgnoreCase(String name);
+    List<User> findByIsOnlineTrue();
     
-    @Query("{'email': {$regex: ?0, $options: 'i'}}")
-    List<User> findByEmailContainingIgnoreCase(String email);
+    Optional<UserSummary> findSummaryByEmail(String email);
     
-    List<User> findByIsOnlineTrue();
+    Optional<UserSummary> findSummaryById(String id);
+    
+    List<UserSummary> findSummariesByIdIn(Collection<String> ids);
+    
+    Optional<UserActivity> findActivityById(String id);
 }
@@ -0,0 +1,134 @@
+package com.example.chatapp.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt hashing and verification on a dedicated, bounded pool so a
+ * login storm cannot take over the request threads. Results are returned as
+ * futures, so callers do not hold a thread while their work is queued. Work
+ * beyond the queue capacity, or work that waits longer than
+ * {@code auth.hashing.max-wait-ms}, fails with a {@link LoginThrottledException}
+ * carrying a retry-after hint derived from the current backlog. Checks for
+ * accounts that do not exist verify against a dummy hash, so they take as
+ * long, and queue the same way, as checks of a wrong password.
+ */
+@Service
+public class PasswordHashingService {
+    
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitMillis;
+    private final int threads;
+    private final String dummyHash;
+    
+    private final Timer hashTimer;
+    private final Counter rejectedCounter;
+    
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${auth.hashing.threads:4}") int threads,
+                                  @Value("${auth.hashing.queue-capacity:200}") int queueCapacity,
+                                  @Value("${auth.hashing.max-wait-ms:5000}") long maxWaitMillis) {
+        this.passwordEncoder = passwordEncoder;
+        this.threads = threads;
+        this.maxWaitMillis = maxWaitMillis;
+        this.dummyHash = passwordEncoder.encode(UUID.randomUUID().toString());
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        
+        this.hashTimer = Timer.builder("auth.password.hash")
+                .description("Time spent hashing or verifying a password")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("auth.password.rejected")
+                .description("Password operations rejected because the hashing pool was saturated")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Password operations waiting for a hashing thread")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+    
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+    
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+    
+    // For a login whose account does not exist; always false
+    public CompletableFuture<Boolean> matchesNoAccount(String rawPassword) {
+        return submit(() -> {
+            passwordEncoder.matches(rawPassword, dummyHash);
+            return false;
+        });
+    }
+    
+    private <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                // Timed out while queued; the caller has already been turned away
+                if (result.isDone()) {
+                    return;
+                }
+                try {
+                    result.complete(hashTimer.recordCallable(task));
+                } catch (Exception e) {
+                    result.completeExceptionally(new RuntimeException("Password hashing failed", e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(reject());
+        }
+        
+        return result.orTimeout(maxWaitMillis, TimeUnit.MILLISECONDS)
+                .exceptionallyCompose(e -> CompletableFuture.failedFuture(e instanceof TimeoutException ? reject() : e));
+    }
+    
+    private LoginThrottledException reject() {
+        rejectedCounter.increment();
+        return new LoginThrottledException("Too many concurrent logins", retryAfterSeconds());
+    }
+    
+    // Time for the pool to drain its current backlog, plus up to 50% jitter so
+    // rejected clients do not all come back at the same moment
+    private long retryAfterSeconds() {
+        double meanMillis = Math.max(hashTimer.mean(TimeUnit.MILLISECONDS), 100.0);
+        double drainMillis = (executor.getQueue().size() + threads) * meanMillis / threads;
+        double jittered = drainMillis * (1.0 + Math.random() * 0.5);
+        return Math.max(1L, (long) Math.ceil(jittered / 1000.0));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -2,64 +2,90 @@ package com.example.chatapp.service;
 
 import com.example.chatapp.model.User;
 import com.example.chatapp.model.dto.AuthResponse;
+import com.example.chatapp.model.dto.UserResponse;
 import com.example.chatapp.model.dto.LoginRequest;
 import com.example.chatapp.model.dto.SignupRequest;
 import com.example.chatapp.repository.UserRepository;
 import com.example.chatapp.security.JwtUtil;
-import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.example.chatapp.security.PasswordHashingService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 @Service
-@RequiredArgsConstructor
 public class AuthService {
     
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authenticationManager;
-    private final UserDetailsService userDetailsService;
+    private final PasswordHashingService passwordHashingService;
     private final JwtUtil jwtUtil;
+    private final SearchIndexService searchIndexService;
+    // Saves, indexing and token signing after a password check, kept off the hashing threads.
+    // Its queue is unbounded because the hashing pool already bounds how much work reaches it.
+    private final ThreadPoolTaskExecutor completionExecutor;
+    
+    public AuthService(UserRepository userRepository,
+                       PasswordHashingService passwordHashingService,
+                       JwtUtil jwtUtil,
+                       SearchIndexService searchIndexService,
+                       @Value("${auth.completion.threads:4}") int completionThreads) {
+        this.userRepository = userRepository;
+        this.passwordHashingService = passwordHashingService;
+        this.jwtUtil = jwtUtil;
+        this.searchIndexService = searchIndexService;
+        
+        this.completionExecutor = new ThreadPoolTaskExecutor();
+        completionExecutor.setCorePoolSize(completionThreads);
+        completionExecutor.setMaxPoolSize(completionThreads);
+        completionExecutor.setThreadNamePrefix("auth-completion-");
+        completionExecutor.initialize();
+    }
     
-    public AuthResponse signup(SignupRequest request) {
+    public CompletableFuture<AuthResponse> signup(SignupRequest request) {
         if (userRepository.findByEmail(request.getEmail()).isPresent()) {
             throw new RuntimeException("Email already exists");
         }
         
-        User user = User.builder()
-                .name(request.getName())
-                .email(request.getEmail())
-                .passwordHash(passwordEncoder.encode(request.getPassword()))
-                .isOnline(true)
-                .build();
-        
-        user = userRepository.save(user);
-        
-        UserDetails userDetails = userDetailsService.loadUserByUsername(user.getEmail());
-        String token = jwtUtil.generateToken(userDetails);
-        
-        return new AuthResponse(user, token);
+        return passwordHashingService.encode(request.getPassword()).thenApplyAsync(passwordHash -> {
+            User user = User.builder()
+                    .name(request.getName())
+                    .email(request.getEmail())
+                    .passwordHash(passwordHash)
+                    .isOnline(true)
+                    .build();
+            
+            user = userRepository.save(user);
+            searchIndexService.indexUser(user);
+            
+            String token = jwtUtil.generateToken(user.getEmail(), user.getId());
+            
+            return new AuthResponse(UserResponse.from(user), token);
+        }, completionExecutor);
     }
     
-    public AuthResponse login(LoginRequest request) {
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
-        );
+    public CompletableFuture<AuthResponse> login(LoginRequest request) {
+        // Single lookup; the BCrypt check runs on the bounded hashing pool, also for unknown emails
+        User user = userRepository.findByEmail(request.getEmail()).orElse(null);
+        CompletableFuture<Boolean> check = user != null
+                ? passwordHashingService.matches(request.getPassword(), user.getPasswordHash())
+                : passwordHashingService.matchesNoAccount(request.getPassword());
         
-        User user = userRepository.findByEmail(request.getEmail())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        // Update online status
-        user.setIsOnline(true);
-        userRepository.save(user);
-        
-        UserDetails userDetails = userDetailsService.loadUserByUsername(user.getEmail());
-        String token = jwtUtil.generateToken(userDetails);
-        
-        return new AuthResponse(user, token);
+        return check.thenApplyAsync(matches -> {
+            if (!matches) {
+                throw new BadCredentialsException("Invalid email or password");
+            }
+            
+            // Update online status
+            user.setIsOnline(true);
+            User saved = userRepository.save(user);
+            
+            String token = jwtUtil.generateToken(saved.getEmail(), saved.getId());
+            
+            return new AuthResponse(UserResponse.from(saved), token);
+        }, completionExecutor);
     }
     
     public AuthResponse refreshToken(String refreshToken) {
@@ -71,10 +97,9 @@ public class AuthService {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
-        UserDetails userDetails = userDetailsService.loadUserByUsername(user.getEmail());
-        String newToken = jwtUtil.generateToken(userDetails);
+        String newToken = jwtUtil.generateToken(user.getEmail(), user.getId());
         
-        return new AuthResponse(user, newToken);
+        return new AuthResponse(UserResponse.from(user), newToken);
     }
     
     public void logout(String email) {
@@ -84,4 +109,9 @@ public class AuthService {
         user.setIsOnline(false);
         userRepository.save(user);
     }
+    
+    @PreDestroy
+    public void shutdown() {
+        completionExecutor.shutdown();
+    }
 }
@@ -0,0 +1,200 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.model.ChatActivity;
+import com.example.chatapp.model.DirectChat;
+import com.example.chatapp.model.Group;
+import com.example.chatapp.model.Message;
+import com.example.chatapp.util.TimeOrderedIdGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains each user's chat list ordered by last activity. Sends are merged
+ * in memory to the newest message id per chat and flushed every
+ * {@code chat.activity.flush-interval-ms} as one bulk write with a
+ * {@code $max} per chat, so a busy group costs one update per flush however
+ * many messages it got. Entries are created when a user joins a chat and
+ * dropped when they leave it.
+ */
+@Slf4j
+@Service
+public class ChatActivityService {
+    
+    private static final String NO_ACTIVITY = "000000000000000000000000";
+    private static final int BACKFILL_BATCH = 1000;
+    
+    // chat id -> newest message id not yet written
+    private final Map<String, String> pending = new ConcurrentHashMap<>();
+    
+    private final MongoTemplate mongoTemplate;
+    private final TimeOrderedIdGenerator messageIdGenerator;
+    private final Timer flushTimer;
+    
+    public ChatActivityService(MongoTemplate mongoTemplate,
+                               TimeOrderedIdGenerator messageIdGenerator,
+                               MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.messageIdGenerator = messageIdGenerator;
+        this.flushTimer = Timer.builder("chat.activity.flush")
+                .description("One flush of chat activity to MongoDB")
+                .register(meterRegistry);
+        meterRegistry.gauge("chat.activity.pending", pending, Map::size);
+    }
+    
+    public void recordMessage(Message message) {
+        if (message.getChatId() != null) {
+            pending.merge(message.getChatId(), message.getId(), ChatActivityService::max);
+        }
+    }
+    
+    // The user's chats, most recently active first, older than the cursor if one is given
+    public List<ChatActivity> getRecentChats(String userId, String before, int limit) {
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (before != null) {
+            if (!ObjectId.isValid(before)) {
+                throw new RuntimeException("Invalid cursor");
+            }
+            criteria = criteria.and("activityId").lt(before);
+        }
+        Query query = Query.query(criteria).with(Sort.by(Sort.Direction.DESC, "activityId")).limit(limit);
+        return mongoTemplate.find(query, ChatActivity.class);
+    }
+    
+    // Joining puts the chat at the top of the user's list; entries that already exist keep their position
+    public void addMembers(String chatId, Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        String activityId = messageIdGenerator.nextId();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatActivity.class);
+        for (String userId : userIds) {
+            bulk.upsert(entry(userId, chatId), new Update()
+                    .setOnInsert("userId", userId)
+                    .setOnInsert("chatId", chatId)
+                    .setOnInsert("activityId", activityId));
+        }
+        bulk.execute();
+    }
+    
+    public void removeMember(String chatId, String userId) {
+        mongoTemplate.remove(entry(userId, chatId), ChatActivity.class);
+    }
+    
+    public void removeChat(String chatId) {
+        pending.remove(chatId);
+        mongoTemplate.remove(Query.query(Criteria.where("chatId").is(chatId)), ChatActivity.class);
+    }
+    
+    @Scheduled(fixedDelayString = "${chat.activity.flush-interval-ms:250}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        flushTimer.record(this::flushBatch);
+    }
+    
+    private void flushBatch() {
+        Map<String, String> batch = new HashMap<>(pending);
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatActivity.class);
+        batch.forEach((chatId, activityId) -> bulk.updateMulti(
+                Query.query(Criteria.where("chatId").is(chatId)),
+                new Update().max("activityId", activityId)));
+        try {
+            bulk.execute();
+        } catch (Exception e) {
+            // Leave the activity queued; the next flush retries it
+            log.warn("Failed to record activity of {} chats", batch.size(), e);
+            return;
+        }
+        // Chats that got a newer message since the snapshot stay for the next flush
+        batch.forEach(pending::remove);
+    }
+    
+    // Fills the index once for chats that existed before it did
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (mongoTemplate.estimatedCount(ChatActivity.class) > 0) {
+            return;
+        }
+        Map<String, String> latest = new HashMap<>();
+        mongoTemplate.aggregate(
+                Aggregation.newAggregation(Aggregation.group("chatId").max("_id").as("latest")),
+                Message.class, Document.class)
+                .forEach(row -> {
+                    if (row.get("_id") instanceof String chatId && row.get("latest") instanceof ObjectId id) {
+                        latest.put(chatId, id.toHexString());
+                    }
+                });
+        
+        List<ChatActivity> entries = new ArrayList<>();
+        int written = 0;
+        for (Group group : mongoTemplate.findAll(Group.class)) {
+            // Group ids are ObjectIds, so a group without messages sorts by its creation time
+            String activityId = latest.getOrDefault(group.getId(), group.getId());
+            for (String userId : group.getMembers()) {
+                entries.add(new ChatActivity(ChatActivity.id(userId, group.getId()), userId, group.getId(), activityId));
+            }
+            written += insertFull(entries);
+        }
+        for (DirectChat chat : mongoTemplate.findAll(DirectChat.class)) {
+            String activityId = latest.getOrDefault(chat.getId(), createdId(chat));
+            for (String userId : chat.getParticipants()) {
+                entries.add(new ChatActivity(ChatActivity.id(userId, chat.getId()), userId, chat.getId(), activityId));
+            }
+            written += insertFull(entries);
+        }
+        if (!entries.isEmpty()) {
+            mongoTemplate.insert(entries, ChatActivity.class);
+            written += entries.size();
+        }
+        log.info("Chat activity index backfilled: {} entries", written);
+    }
+    
+    private int insertFull(List<ChatActivity> entries) {
+        if (entries.size() < BACKFILL_BATCH) {
+            return 0;
+        }
+        int size = entries.size();
+        mongoTemplate.insert(entries, ChatActivity.class);
+        entries.clear();
+        return size;
+    }
+    
+    private static String createdId(DirectChat chat) {
+        if (chat.getCreatedAt() == null) {
+            return NO_ACTIVITY;
+        }
+        return new ObjectId(Date.from(chat.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant())).toHexString();
+    }
+    
+    private static Query entry(String userId, String chatId) {
+        return Query.query(Criteria.where("_id").is(ChatActivity.id(userId, chatId)));
+    }
+    
+    private static String max(String a, String b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+}
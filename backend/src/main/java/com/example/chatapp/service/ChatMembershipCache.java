@@ -0,0 +1,54 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.model.DirectChat;
+import com.example.chatapp.model.projection.GroupAudience;
+import com.example.chatapp.repository.GroupRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Who may read and write a chat, answered from memory. Direct chat ids
+ * encode their two participants, so those checks need no lookup at all.
+ * Group member sets are loaded once from {@code Group.members} and dropped
+ * on {@link GroupMembershipChangedEvent}; the expiry only bounds staleness
+ * from writes that bypass GroupService.
+ */
+@Component
+public class ChatMembershipCache {
+    
+    private final LoadingCache<String, Set<String>> groupMembers;
+    
+    public ChatMembershipCache(GroupRepository groupRepository,
+                               @Value("${chat.membership.cache.max-groups:100000}") long maxGroups,
+                               @Value("${chat.membership.cache.ttl:1h}") Duration ttl) {
+        this.groupMembers = Caffeine.newBuilder()
+                .maximumSize(maxGroups)
+                .expireAfterWrite(ttl)
+                .build(groupId -> groupRepository.findAudienceById(groupId)
+                        .map(GroupAudience::getMembers)
+                        .map(Set::copyOf)
+                        .orElse(Set.of()));
+    }
+    
+    public boolean isMember(String chatId, String userId) {
+        if (chatId == null || userId == null) {
+            return false;
+        }
+        String[] participants = DirectChat.participantIds(chatId);
+        if (participants != null) {
+            return userId.equals(participants[0]) || userId.equals(participants[1]);
+        }
+        return groupMembers.get(chatId).contains(userId);
+    }
+    
+    @EventListener
+    public void onMembershipChanged(GroupMembershipChangedEvent event) {
+        groupMembers.invalidate(event.groupId());
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.model.DirectChat;
+import com.example.chatapp.model.Group;
+import com.example.chatapp.model.Message;
+import com.example.chatapp.repository.GroupRepository;
+import com.example.chatapp.repository.MessageRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Bounded read-through cache of chat metadata: groups, direct chats and the
+ * pinned messages of each chat. The services that write them evict entries
+ * after every write; the expiry only bounds staleness from writes that
+ * bypass them, such as another instance. Cached objects are shared, so
+ * callers must not change them.
+ */
+@Component
+public class ChatMetadataCache {
+    
+    private final LoadingCache<String, Optional<Group>> groups;
+    private final Cache<String, DirectChat> directChats;
+    private final LoadingCache<String, List<Message>> pinnedMessages;
+    
+    public ChatMetadataCache(GroupRepository groupRepository,
+                             MessageRepository messageRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${chat.metadata.cache.max-entries:100000}") long maxEntries,
+                             @Value("${chat.metadata.cache.ttl:10m}") Duration ttl) {
+        this.groups = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(groupRepository::findById);
+        this.directChats = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.pinnedMessages = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(chatId -> List.copyOf(messageRepository.findByChatIdAndPinnedTrue(chatId)));
+        
+        CaffeineCacheMetrics.monitor(meterRegistry, groups, "chat.metadata.groups");
+        CaffeineCacheMetrics.monitor(meterRegistry, directChats, "chat.metadata.direct-chats");
+        CaffeineCacheMetrics.monitor(meterRegistry, pinnedMessages, "chat.metadata.pinned");
+    }
+    
+    public Optional<Group> getGroup(String groupId) {
+        return groups.get(groupId);
+    }
+    
+    public void evictGroup(String groupId) {
+        groups.invalidate(groupId);
+    }
+    
+    // Not loaded on a miss: DirectChatService answers misses with its upsert, which fills the entry
+    public Optional<DirectChat> getDirectChat(String chatId) {
+        return Optional.ofNullable(directChats.getIfPresent(chatId));
+    }
+    
+    public void putDirectChat(DirectChat directChat) {
+        directChats.put(directChat.getId(), directChat);
+    }
+    
+    public void evictDirectChat(String chatId) {
+        directChats.invalidate(chatId);
+    }
+    
+    public List<Message> getPinnedMessages(String chatId) {
+        return pinnedMessages.get(chatId);
+    }
+    
+    public void evictPinnedMessages(String chatId) {
+        pinnedMessages.invalidate(chatId);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.chatapp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Recently stored (sender, client message id) pairs and the id of the
+ * message each one produced, so a resend after a reconnect is answered
+ * without touching Mongo. Bounded in size and time; the unique index on
+ * messages covers whatever falls out of it.
+ */
+@Component
+public class ClientMessageDedupe {
+    
+    private final Cache<String, String> recent;
+    
+    public ClientMessageDedupe(@Value("${message.dedupe.window:10m}") Duration window,
+                               @Value("${message.dedupe.max-entries:100000}") long maxEntries) {
+        this.recent = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maxEntries)
+                .build();
+    }
+    
+    public String find(String senderId, String clientMessageId) {
+        return recent.getIfPresent(key(senderId, clientMessageId));
+    }
+    
+    public void remember(String senderId, String clientMessageId, String messageId) {
+        recent.put(key(senderId, clientMessageId), messageId);
+    }
+    
+    private static String key(String senderId, String clientMessageId) {
+        return senderId + "|" + clientMessageId;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.model.Message;
+import com.example.chatapp.model.Message.MessageStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Aggregates delivery and read acks from clients and applies them in bulk.
+ * Acks are merged in memory per (message, user), keeping the highest
+ * status, and flushed every {@code message.status.flush-interval-ms} with
+ * one find and one bulk write of {@code updateMany} per target status.
+ * Status only moves forward. Senders get one notification per chat and
+ * flush on {@code /user/queue/status}.
+ */
+@Slf4j
+@Service
+public class DeliveryStatusService {
+    
+    public static final String STATUS_QUEUE = "/queue/status";
+    
+    record AckKey(String messageId, String userId) {
+    }
+    
+    private final Map<AckKey, MessageStatus> pending = new ConcurrentHashMap<>();
+    
+    private final MongoTemplate mongoTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final UserService userService;
+    private final ChatMembershipCache membershipCache;
+    private final int maxBatch;
+    
+    private final Map<MessageStatus, Counter> ackCounters = new EnumMap<>(MessageStatus.class);
+    private final Map<MessageStatus, Counter> updateCounters = new EnumMap<>(MessageStatus.class);
+    private final Timer flushTimer;
+    
+    public DeliveryStatusService(MongoTemplate mongoTemplate,
+                                 SimpMessagingTemplate messagingTemplate,
+                                 UserService userService,
+                                 ChatMembershipCache membershipCache,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${message.status.max-batch:5000}") int maxBatch) {
+        this.mongoTemplate = mongoTemplate;
+        this.messagingTemplate = messagingTemplate;
+        this.userService = userService;
+        this.membershipCache = membershipCache;
+        this.maxBatch = maxBatch;
+        
+        for (MessageStatus status : List.of(MessageStatus.DELIVERED, MessageStatus.READ)) {
+            String tag = status.name().toLowerCase();
+            ackCounters.put(status, meterRegistry.counter("chat.status.acks", "status", tag));
+            updateCounters.put(status, meterRegistry.counter("chat.status.updates", "status", tag));
+        }
+        this.flushTimer = Timer.builder("chat.status.flush")
+                .description("One flush of aggregated acks to MongoDB")
+                .register(meterRegistry);
+        meterRegistry.gauge("chat.status.pending", pending, Map::size);
+    }
+    
+    public void ack(String userId, List<String> messageIds, MessageStatus status) {
+        if (messageIds == null) {
+            return;
+        }
+        for (String messageId : messageIds) {
+            if (messageId != null) {
+                pending.merge(new AckKey(messageId, userId), status, DeliveryStatusService::max);
+            }
+        }
+        ackCounters.get(status).increment(messageIds.size());
+    }
+    
+    @Scheduled(fixedDelayString = "${message.status.flush-interval-ms:500}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        flushTimer.record(this::flushBatch);
+    }
+    
+    private void flushBatch() {
+        Map<AckKey, MessageStatus> batch = new HashMap<>();
+        for (Map.Entry<AckKey, MessageStatus> entry : pending.entrySet()) {
+            if (batch.size() >= maxBatch) {
+                break;
+            }
+            batch.put(entry.getKey(), entry.getValue());
+        }
+        
+        try {
+            apply(batch);
+        } catch (Exception e) {
+            // Leave the acks queued; the next flush retries them
+            log.warn("Failed to apply {} message acks", batch.size(), e);
+            return;
+        }
+        // Acks merged in since the snapshot have a different value and stay for the next flush
+        batch.forEach(pending::remove);
+    }
+    
+    private void apply(Map<AckKey, MessageStatus> batch) {
+        List<String> messageIds = batch.keySet().stream().map(AckKey::messageId).distinct().toList();
+        Query query = new Query(Criteria.where("id").in(messageIds));
+        query.fields().include("chatId", "senderId", "receiverId", "status");
+        Map<String, Message> messages = new HashMap<>();
+        mongoTemplate.find(query, Message.class).forEach(message -> messages.put(message.getId(), message));
+        
+        // Highest valid status per message over all acking users
+        Map<String, MessageStatus> targets = new HashMap<>();
+        batch.forEach((key, status) -> {
+            Message message = messages.get(key.messageId());
+            if (message != null && mayAck(message, key.userId()) && status.compareTo(message.getStatus()) > 0) {
+                targets.merge(key.messageId(), status, DeliveryStatusService::max);
+            }
+        });
+        if (targets.isEmpty()) {
+            return;
+        }
+        
+        Map<MessageStatus, List<String>> byStatus = new EnumMap<>(MessageStatus.class);
+        targets.forEach((messageId, status) -> byStatus.computeIfAbsent(status, s -> new ArrayList<>()).add(messageId));
+        // Moving editedAt lets delta sync pick up the status change
+        LocalDateTime now = LocalDateTime.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Message.class);
+        byStatus.forEach((status, ids) -> bulk.updateMulti(
+                new Query(Criteria.where("id").in(ids).and("status").in(lowerThan(status))),
+                new Update().set("status", status).set("editedAt", now)));
+        bulk.execute();
+        byStatus.forEach((status, ids) -> updateCounters.get(status).increment(ids.size()));
+        
+        notifySenders(targets, messages);
+    }
+    
+    private void notifySenders(Map<String, MessageStatus> targets, Map<String, Message> messages) {
+        // sender -> chat -> "delivered"/"read" -> ids
+        Map<String, Map<String, Map<String, List<String>>>> bySender = new HashMap<>();
+        targets.forEach((messageId, status) -> {
+            Message message = messages.get(messageId);
+            bySender.computeIfAbsent(message.getSenderId(), id -> new HashMap<>())
+                    .computeIfAbsent(message.getChatId(), id -> new HashMap<>())
+                    .computeIfAbsent(status.name().toLowerCase(), s -> new ArrayList<>())
+                    .add(messageId);
+        });
+        
+        Map<String, String> emails = userService.getEmails(bySender.keySet());
+        bySender.forEach((senderId, chats) -> {
+            String email = emails.get(senderId);
+            if (email == null) {
+                return;
+            }
+            // {"chatId": ..., "delivered": [ids], "read": [ids]}
+            chats.forEach((chatId, changes) -> {
+                Map<String, Object> notification = new HashMap<>(changes);
+                notification.put("chatId", chatId);
+                messagingTemplate.convertAndSendToUser(email, STATUS_QUEUE, notification);
+            });
+        });
+    }
+    
+    // Only recipients ack: the explicit receiver, or any other member of the chat
+    private boolean mayAck(Message message, String userId) {
+        if (userId.equals(message.getSenderId())) {
+            return false;
+        }
+        if (message.getReceiverId() != null) {
+            return message.getReceiverId().equals(userId);
+        }
+        return membershipCache.isMember(message.getChatId(), userId);
+    }
+    
+    private static List<MessageStatus> lowerThan(MessageStatus status) {
+        return Arrays.stream(MessageStatus.values()).filter(s -> s.compareTo(status) < 0).toList();
+    }
+    
+    private static MessageStatus max(MessageStatus a, MessageStatus b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+}
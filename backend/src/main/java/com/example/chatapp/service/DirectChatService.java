@@ -3,6 +3,12 @@ package com.example.chatapp.service;
 import com.example.chatapp.model.DirectChat;
 import com.example.chatapp.repository.DirectChatRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -14,37 +20,40 @@ import java.util.Optional;
 public class DirectChatService {
     
     private final DirectChatRepository directChatRepository;
+    private final ChatMetadataCache metadataCache;
+    private final ChatActivityService chatActivityService;
+    private final MongoTemplate mongoTemplate;
     
     public DirectChat createOrGetDirectChat(String userId1, String userId2) {
-        // Check if direct chat already exists
-        Optional<DirectChat> existingChat = directChatRepository.findByParticipants(userId1, userId2);
-        
-        if (existingChat.isPresent()) {
-            return existingChat.get();
+        // The id is derived from the participants, so lookup and creation are one upsert on it
+        String chatId = DirectChat.generateId(userId1, userId2);
+        Optional<DirectChat> cached = metadataCache.getDirectChat(chatId);
+        if (cached.isPresent()) {
+            return cached.get();
         }
         
-        // Create new direct chat
-        String chatId = DirectChat.generateId(userId1, userId2);
-        DirectChat directChat = DirectChat.builder()
-                .id(chatId)
-                .participants(List.of(userId1, userId2))
-                .createdAt(LocalDateTime.now())
-                .lastActivity(LocalDateTime.now())
-                .build();
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(Criteria.where("_id").is(chatId));
+        Update update = new Update()
+                .setOnInsert("participants", List.of(userId1, userId2))
+                .setOnInsert("createdAt", now)
+                .setOnInsert("lastActivity", now);
+        FindAndModifyOptions options = FindAndModifyOptions.options().upsert(true).returnNew(true);
         
-        return directChatRepository.save(directChat);
+        DirectChat directChat;
+        try {
+            directChat = mongoTemplate.findAndModify(query, update, options, DirectChat.class);
+        } catch (DuplicateKeyException e) {
+            // Both users opened the chat at once and the other insert won; now it matches
+            directChat = mongoTemplate.findAndModify(query, update, options, DirectChat.class);
+        }
+        // Only inserts: the entries of an existing chat keep their place in both lists
+        chatActivityService.addMembers(chatId, directChat.getParticipants());
+        metadataCache.putDirectChat(directChat);
+        return directChat;
     }
     
     public List<DirectChat> getUserDirectChats(String userId) {
         return directChatRepository.findByParticipantsContaining(userId);
     }
-    
-    public void updateLastActivity(String chatId) {
-        Optional<DirectChat> chat = directChatRepository.findById(chatId);
-        if (chat.isPresent()) {
-            DirectChat directChat = chat.get();
-            directChat.setLastActivity(LocalDateTime.now());
-            directChatRepository.save(directChat);
-        }
-    }
 }
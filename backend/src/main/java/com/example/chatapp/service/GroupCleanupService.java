@@ -0,0 +1,259 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.model.ChatRetention;
+import com.example.chatapp.model.CleanupJob;
+import com.example.chatapp.model.CleanupJob.JobStatus;
+import com.example.chatapp.model.Group;
+import com.example.chatapp.model.Message;
+import com.example.chatapp.model.MessageTombstone;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Removes what a deleted group leaves behind: its messages with their
+ * attachments, its tombstones, its retention policy and its avatar. Deleting
+ * a group only records a {@link CleanupJob}; a single worker thread per
+ * instance claims jobs with a lease and deletes the messages in batches of
+ * {@code group.cleanup.batch-size}, pausing {@code batch-pause-ms} between
+ * batches. After each batch the job's cursor and counters are saved and its
+ * lease renewed, so a job interrupted by a restart resumes where it stopped,
+ * on any instance, once the lease has expired.
+ */
+@Slf4j
+@Service
+public class GroupCleanupService {
+    
+    private static final String MIN_ID = "000000000000000000000000";
+    
+    private final MongoTemplate mongoTemplate;
+    private final MessagePurger messagePurger;
+    private final int batchSize;
+    private final long batchPauseMs;
+    private final Duration lease;
+    private final String instanceId = UUID.randomUUID().toString();
+    
+    private final ThreadPoolTaskExecutor worker;
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    private final Map<JobStatus, AtomicLong> jobCounts = Map.of(
+            JobStatus.PENDING, new AtomicLong(),
+            JobStatus.RUNNING, new AtomicLong());
+    private final Timer batchTimer;
+    private final Counter messagesDeleted;
+    
+    public GroupCleanupService(MongoTemplate mongoTemplate,
+                               MessagePurger messagePurger,
+                               MeterRegistry meterRegistry,
+                               @Value("${group.cleanup.batch-size:500}") int batchSize,
+                               @Value("${group.cleanup.batch-pause-ms:200}") long batchPauseMs,
+                               @Value("${group.cleanup.lease:2m}") Duration lease) {
+        this.mongoTemplate = mongoTemplate;
+        this.messagePurger = messagePurger;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchPauseMs = batchPauseMs;
+        this.lease = lease;
+        
+        this.worker = new ThreadPoolTaskExecutor();
+        worker.setCorePoolSize(1);
+        worker.setMaxPoolSize(1);
+        worker.setThreadNamePrefix("group-cleanup-");
+        worker.initialize();
+        
+        jobCounts.forEach((status, count) ->
+                meterRegistry.gauge("chat.cleanup.jobs", Tags.of("status", status.name().toLowerCase()), count));
+        this.batchTimer = Timer.builder("chat.cleanup.batch")
+                .description("One batch of a group cleanup job")
+                .register(meterRegistry);
+        this.messagesDeleted = meterRegistry.counter("chat.cleanup.messages.deleted");
+    }
+    
+    public CleanupJob schedule(Group group, String requestedBy) {
+        LocalDateTime now = LocalDateTime.now();
+        CleanupJob job = mongoTemplate.insert(CleanupJob.builder()
+                .groupId(group.getId())
+                .requestedBy(requestedBy)
+                .avatarUrl(group.getAvatarUrl())
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        return job;
+    }
+    
+    // For a job whose group could not be deleted after all
+    public void cancel(CleanupJob job) {
+        mongoTemplate.remove(byId(job), CleanupJob.class);
+    }
+    
+    public CleanupJob getJob(String jobId, String userId) {
+        CleanupJob job = mongoTemplate.findById(jobId, CleanupJob.class);
+        if (job == null || !job.getRequestedBy().equals(userId)) {
+            throw new RuntimeException("Cleanup job not found");
+        }
+        return job;
+    }
+    
+    @Scheduled(fixedDelayString = "${group.cleanup.poll-interval-ms:5000}")
+    public void poll() {
+        jobCounts.forEach((status, count) -> count.set(
+                mongoTemplate.count(Query.query(Criteria.where("status").is(status)), CleanupJob.class)));
+        if (jobCounts.get(JobStatus.PENDING).get() + jobCounts.get(JobStatus.RUNNING).get() == 0) {
+            return;
+        }
+        if (running.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                try {
+                    CleanupJob job;
+                    while (!Thread.currentThread().isInterrupted() && (job = claim()) != null) {
+                        run(job);
+                    }
+                } catch (RuntimeException e) {
+                    // The lease runs out and the job is picked up again
+                    log.warn("Group cleanup failed", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        }
+    }
+    
+    // Takes the oldest job that is pending or whose lease has expired
+    private CleanupJob claim() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(new Criteria().andOperator(
+                        Criteria.where("status").in(JobStatus.PENDING, JobStatus.RUNNING),
+                        new Criteria().orOperator(
+                                Criteria.where("leaseUntil").is(null),
+                                Criteria.where("leaseUntil").lt(now))))
+                .with(Sort.by("createdAt"));
+        Update update = new Update()
+                .set("status", JobStatus.RUNNING)
+                .set("owner", instanceId)
+                .set("leaseUntil", now.plus(lease));
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+                CleanupJob.class);
+    }
+    
+    private void run(CleanupJob job) {
+        // Jobs are recorded before their group is deleted; one claimed in between waits for the next poll
+        if (job.getStartedAt() == null
+                && mongoTemplate.exists(Query.query(Criteria.where("_id").is(job.getGroupId())), Group.class)) {
+            release(job);
+            return;
+        }
+        if (job.getStartedAt() == null) {
+            mongoTemplate.updateFirst(byId(job), new Update().set("startedAt", LocalDateTime.now()), CleanupJob.class);
+            log.info("Cleaning up deleted group {} (job {})", job.getGroupId(), job.getId());
+        }
+        String cursor = job.getCursor() != null ? job.getCursor() : MIN_ID;
+        while (true) {
+            Query query = Query.query(Criteria.where("chatId").is(job.getGroupId())
+                            .and("_id").gt(new ObjectId(cursor)))
+                    .with(Sort.by("_id"))
+                    .limit(batchSize);
+            query.fields().include("chatId", "fileUrl");
+            List<Message> batch = mongoTemplate.find(query, Message.class);
+            if (batch.isEmpty()) {
+                finish(job);
+                return;
+            }
+            
+            MessagePurger.Result result = batchTimer.record(() -> messagePurger.purge(batch));
+            messagesDeleted.increment(result.deleted());
+            cursor = batch.get(batch.size() - 1).getId();
+            if (!saveProgress(job, cursor, result)) {
+                log.warn("Lost the lease on cleanup job {}; another instance continues it", job.getId());
+                return;
+            }
+            if (!pause()) {
+                release(job);
+                return;
+            }
+        }
+    }
+    
+    // False once another instance has taken the job over
+    private boolean saveProgress(CleanupJob job, String cursor, MessagePurger.Result result) {
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .set("cursor", cursor)
+                .inc("messagesDeleted", result.deleted())
+                .inc("filesDeleted", result.filesDeleted())
+                .inc("filesPostponed", result.postponed())
+                .set("leaseUntil", now.plus(lease))
+                .set("updatedAt", now);
+        return mongoTemplate.updateFirst(owned(job), update, CleanupJob.class).getMatchedCount() > 0;
+    }
+    
+    private void finish(CleanupJob job) {
+        String groupId = job.getGroupId();
+        int files = 0;
+        if (job.getAvatarUrl() != null
+                && messagePurger.deleteFile(job.getAvatarUrl()) == MessagePurger.FileResult.DELETED) {
+            files++;
+        }
+        mongoTemplate.remove(Query.query(Criteria.where("chatId").is(groupId)), MessageTombstone.class);
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(groupId)), ChatRetention.class);
+        
+        LocalDateTime now = LocalDateTime.now();
+        mongoTemplate.updateFirst(owned(job), new Update()
+                .set("status", JobStatus.DONE)
+                .inc("filesDeleted", files)
+                .unset("leaseUntil")
+                .set("updatedAt", now)
+                .set("finishedAt", now), CleanupJob.class);
+        CleanupJob done = mongoTemplate.findById(job.getId(), CleanupJob.class);
+        log.info("Cleaned up deleted group {} (job {}): {} messages, {} files deleted, {} files postponed",
+                groupId, job.getId(), done.getMessagesDeleted(), done.getFilesDeleted(), done.getFilesPostponed());
+    }
+    
+    // Gives the job up on shutdown so the next instance need not wait out the lease
+    private void release(CleanupJob job) {
+        mongoTemplate.updateFirst(owned(job), new Update().unset("leaseUntil"), CleanupJob.class);
+    }
+    
+    private boolean pause() {
+        try {
+            Thread.sleep(batchPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    private static Query byId(CleanupJob job) {
+        return Query.query(Criteria.where("_id").is(job.getId()));
+    }
+    
+    private Query owned(CleanupJob job) {
+        return Query.query(Criteria.where("_id").is(job.getId()).and("owner").is(instanceId));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+    }
+}
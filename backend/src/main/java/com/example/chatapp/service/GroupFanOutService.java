@@ -0,0 +1,218 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.model.Group;
+import com.example.chatapp.model.Message;
+import com.example.chatapp.model.dto.MessageResponse;
+import com.example.chatapp.websocket.OrderedLaneExecutor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Group message delivery. Groups below {@code group.fanout.sharded-threshold}
+ * members keep the direct path: one send per group topic, with the broker
+ * walking the subscriptions on the sending thread. Larger groups are split
+ * into member shards of about {@code group.fanout.shard-size} that a worker
+ * pool delivers to personal queues, so the sender's thread only hands the
+ * shards over. Members are assigned to shards by id hash, and each shard of a
+ * group runs on its own ordered lane, so a member receives the group's
+ * messages in the order they were sent. The payload is serialized once and
+ * shared by every shard.
+ * Nothing is queued for offline members; they catch up from the group's
+ * history when they next drain their pending deliveries.
+ *
+ * <p>Muted members still get the message on the sharded path, with an
+ * {@code x-muted: true} header so clients skip notifications. A topic send
+ * cannot be flagged per member, so on the direct path clients rely on the
+ * {@code muted} flag the chat list reports from the group's
+ * {@code mutedMembers}.
+ */
+@Slf4j
+@Service
+public class GroupFanOutService {
+    
+    public static final String MUTED_HEADER = "x-muted";
+    
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PendingDeliveryService pendingDeliveryService;
+    private final GroupService groupService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final int shardedThreshold;
+    private final int shardSize;
+    private final OrderedLaneExecutor workers;
+    private final Counter failedShards;
+    
+    public GroupFanOutService(SimpMessagingTemplate messagingTemplate,
+                              PendingDeliveryService pendingDeliveryService,
+                              GroupService groupService,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${group.fanout.sharded-threshold:1000}") int shardedThreshold,
+                              @Value("${group.fanout.shard-size:500}") int shardSize,
+                              @Value("${group.fanout.workers:4}") int workerCount,
+                              @Value("${group.fanout.lanes:64}") int laneCount) {
+        this.messagingTemplate = messagingTemplate;
+        this.pendingDeliveryService = pendingDeliveryService;
+        this.groupService = groupService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.shardedThreshold = shardedThreshold;
+        this.shardSize = Math.max(1, shardSize);
+        
+        // One shard per lane turn, so a large group's shards interleave with other groups'
+        this.workers = new OrderedLaneExecutor(laneCount, 1);
+        workers.setCorePoolSize(workerCount);
+        workers.setMaxPoolSize(workerCount);
+        // Only scheduled lanes wait in the pool's queue; shards wait in their lane
+        workers.setQueueCapacity(workers.getLaneCount());
+        workers.setThreadNamePrefix("group-fanout-");
+        workers.initialize();
+        
+        this.failedShards = Counter.builder("chat.fanout.shard.failures")
+                .description("Member shards whose delivery failed")
+                .register(meterRegistry);
+        meterRegistry.gauge("chat.fanout.queue.depth", workers, OrderedLaneExecutor::getQueuedFrames);
+    }
+    
+    public void deliver(Message message, MessageResponse payload, Map<String, Object> headers) {
+        long start = System.nanoTime();
+        Group audience = groupService.getGroup(message.getGroupId());
+        List<String> members = audience.getMembers() != null ? audience.getMembers() : List.of();
+        
+        if (members.size() < shardedThreshold) {
+            messagingTemplate.convertAndSend("/topic/chat." + message.getChatId(), payload, headers);
+            messagingTemplate.convertAndSend("/topic/group." + message.getGroupId(), payload, headers);
+            latency("direct", members.size()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return;
+        }
+        
+        byte[] json = serialize(payload);
+        org.springframework.messaging.Message<byte[]> frame = frame(json, headers, false);
+        org.springframework.messaging.Message<byte[]> mutedFrame = frame(json, headers, true);
+        Set<String> muted = audience.getMutedMembers() != null ? new HashSet<>(audience.getMutedMembers()) : Set.of();
+        
+        Timer timer = latency("sharded", members.size());
+        List<List<String>> shards = shards(members);
+        AtomicInteger remaining = new AtomicInteger((int) shards.stream().filter(shard -> !shard.isEmpty()).count());
+        for (int index = 0; index < shards.size(); index++) {
+            List<String> shard = shards.get(index);
+            if (shard.isEmpty()) {
+                continue;
+            }
+            workers.execute(message.getGroupId() + ":" + index, () -> {
+                try {
+                    deliverShard(shard, muted, frame, mutedFrame);
+                } catch (Exception e) {
+                    failedShards.increment();
+                    log.warn("Fan-out of message {} to a shard of group {} failed", message.getId(), message.getGroupId(), e);
+                } finally {
+                    // Fan-out latency runs until the last shard is handed to the broker
+                    if (remaining.decrementAndGet() == 0) {
+                        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                }
+            });
+        }
+    }
+    
+    // By id hash rather than list position, so a member keeps its shard when others join or leave
+    private List<List<String>> shards(List<String> members) {
+        int count = (members.size() + shardSize - 1) / shardSize;
+        List<List<String>> shards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            shards.add(new ArrayList<>(shardSize));
+        }
+        for (String memberId : members) {
+            shards.get(Math.floorMod(memberId.hashCode(), count)).add(memberId);
+        }
+        return shards;
+    }
+    
+    private void deliverShard(List<String> shard, Set<String> muted,
+                              org.springframework.messaging.Message<byte[]> frame,
+                              org.springframework.messaging.Message<byte[]> mutedFrame) {
+        if (muted.isEmpty()) {
+            pendingDeliveryService.deliverFrame(frame, shard);
+            return;
+        }
+        List<String> audible = new ArrayList<>(shard.size());
+        List<String> silenced = new ArrayList<>();
+        for (String memberId : shard) {
+            (muted.contains(memberId) ? silenced : audible).add(memberId);
+        }
+        pendingDeliveryService.deliverFrame(frame, audible);
+        if (!silenced.isEmpty()) {
+            pendingDeliveryService.deliverFrame(mutedFrame, silenced);
+        }
+    }
+    
+    private byte[] serialize(MessageResponse payload) {
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize message", e);
+        }
+    }
+    
+    // Immutable, so every send copies the headers and shares the payload array
+    private static org.springframework.messaging.Message<byte[]> frame(byte[] json, Map<String, Object> headers,
+                                                                       boolean muted) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (headers != null) {
+            headers.forEach((name, value) -> accessor.setNativeHeader(name, String.valueOf(value)));
+        }
+        if (muted) {
+            accessor.setNativeHeader(MUTED_HEADER, "true");
+        }
+        org.springframework.messaging.Message<byte[]> frame = MessageBuilder.createMessage(json, accessor.getMessageHeaders());
+        accessor.setImmutable();
+        return frame;
+    }
+    
+    private Timer latency(String mode, int members) {
+        return Timer.builder("chat.fanout.group")
+                .description("Group fan-out time, until the last member shard is handed to the broker")
+                .tag("mode", mode)
+                .tag("size", sizeBucket(members))
+                .register(meterRegistry);
+    }
+    
+    private static String sizeBucket(int members) {
+        if (members < 100) {
+            return "<100";
+        }
+        if (members < 1_000) {
+            return "<1k";
+        }
+        if (members < 10_000) {
+            return "<10k";
+        }
+        return "10k+";
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
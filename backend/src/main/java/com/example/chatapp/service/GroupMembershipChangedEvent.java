@@ -0,0 +1,5 @@
+package com.example.chatapp.service;
+
+// Published by GroupService whenever a group's member list changes or the group is deleted
+public record GroupMembershipChangedEvent(String groupId) {
+}
@@ -1,14 +1,26 @@
 package com.example.chatapp.service;
 
+import com.example.chatapp.model.CleanupJob;
 import com.example.chatapp.model.Group;
 import com.example.chatapp.model.User;
 import com.example.chatapp.model.dto.GroupRequest;
+import com.example.chatapp.model.projection.GroupSummary;
+import com.example.chatapp.model.projection.UserSummary;
 import com.example.chatapp.repository.GroupRepository;
 import com.example.chatapp.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
@@ -16,6 +28,12 @@ public class GroupService {
     
     private final GroupRepository groupRepository;
     private final UserRepository userRepository;
+    private final SearchIndexService searchIndexService;
+    private final ChatMetadataCache metadataCache;
+    private final ChatActivityService chatActivityService;
+    private final GroupCleanupService groupCleanupService;
+    private final MongoTemplate mongoTemplate;
+    private final ApplicationEventPublisher eventPublisher;
     
     public Group createGroup(GroupRequest request, String creatorEmail) {
         User creator = userRepository.findByEmail(creatorEmail)
@@ -34,21 +52,53 @@ public class GroupService {
             group.getMembers().add(creator.getId());
         }
         
-        return groupRepository.save(group);
+        group = groupRepository.save(group);
+        searchIndexService.indexGroup(group);
+        chatActivityService.addMembers(group.getId(), group.getMembers());
+        eventPublisher.publishEvent(new GroupMembershipChangedEvent(group.getId()));
+        return group;
     }
     
-    public List<Group> getUserGroups(String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
+    public List<GroupSummary> getUserGroups(String userEmail) {
+        UserSummary user = userRepository.findSummaryByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
-        return groupRepository.findByMembersContaining(user.getId());
+        return groupRepository.findSummariesByMember(user.getId());
     }
     
-    public Group updateGroup(String groupId, GroupRequest request, String userEmail) {
-        Group group = groupRepository.findById(groupId)
+    public List<String> getMemberIds(String groupId) {
+        return metadataCache.getGroup(groupId)
+                .map(Group::getMembers)
+                .orElse(List.of());
+    }
+    
+    // Shared cached instance; writes below go to MongoDB as targeted updates instead of changing it
+    public Group getGroup(String groupId) {
+        return metadataCache.getGroup(groupId)
                 .orElseThrow(() -> new RuntimeException("Group not found"));
+    }
+    
+    public Group setMuted(String groupId, boolean muted, String userEmail) {
+        Group group = getGroup(groupId);
+        
+        UserSummary user = userRepository.findSummaryByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found"));
         
-        User user = userRepository.findByEmail(userEmail)
+        // Members mute the group for themselves only
+        if (!group.getMembers().contains(user.getId())) {
+            throw new RuntimeException("Not a member of this group");
+        }
+        
+        Update update = muted
+                ? new Update().addToSet("mutedMembers", user.getId())
+                : new Update().pull("mutedMembers", user.getId());
+        return modify(groupId, update);
+    }
+    
+    public Group updateGroup(String groupId, GroupRequest request, String userEmail) {
+        Group group = getGroup(groupId);
+        
+        UserSummary user = userRepository.findSummaryByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
         // Only creator can update group
@@ -56,24 +106,29 @@ public class GroupService {
             throw new RuntimeException("Unauthorized to update this group");
         }
         
+        Update update = new Update();
         if (request.getName() != null) {
-            group.setName(request.getName());
+            update.set("name", request.getName());
         }
         if (request.getDescription() != null) {
-            group.setDescription(request.getDescription());
+            update.set("description", request.getDescription());
         }
         if (request.getAvatarUrl() != null) {
-            group.setAvatarUrl(request.getAvatarUrl());
+            update.set("avatarUrl", request.getAvatarUrl());
+        }
+        if (update.getUpdateObject().isEmpty()) {
+            return group;
         }
         
-        return groupRepository.save(group);
+        group = modify(groupId, update);
+        searchIndexService.indexGroup(group);
+        return group;
     }
     
     public Group addMember(String groupId, String memberId, String userEmail) {
-        Group group = groupRepository.findById(groupId)
-                .orElseThrow(() -> new RuntimeException("Group not found"));
+        Group group = getGroup(groupId);
         
-        User user = userRepository.findByEmail(userEmail)
+        UserSummary user = userRepository.findSummaryByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
         // Only creator or existing members can add new members
@@ -81,19 +136,19 @@ public class GroupService {
             throw new RuntimeException("Unauthorized to add members to this group");
         }
         
-        if (!group.getMembers().contains(memberId)) {
-            group.getMembers().add(memberId);
-            groupRepository.save(group);
+        if (group.getMembers().contains(memberId)) {
+            return group;
         }
-        
+        group = modify(groupId, new Update().addToSet("members", memberId));
+        chatActivityService.addMembers(groupId, List.of(memberId));
+        eventPublisher.publishEvent(new GroupMembershipChangedEvent(groupId));
         return group;
     }
     
     public Group removeMember(String groupId, String memberId, String userEmail) {
-        Group group = groupRepository.findById(groupId)
-                .orElseThrow(() -> new RuntimeException("Group not found"));
+        Group group = getGroup(groupId);
         
-        User user = userRepository.findByEmail(userEmail)
+        UserSummary user = userRepository.findSummaryByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
         // Only creator can remove members, or members can remove themselves
@@ -101,15 +156,17 @@ public class GroupService {
             throw new RuntimeException("Unauthorized to remove this member");
         }
         
-        group.getMembers().remove(memberId);
-        return groupRepository.save(group);
+        group = modify(groupId, new Update().pull("members", memberId).pull("mutedMembers", memberId));
+        chatActivityService.removeMember(groupId, memberId);
+        eventPublisher.publishEvent(new GroupMembershipChangedEvent(groupId));
+        return group;
     }
     
-    public void deleteGroup(String groupId, String userEmail) {
-        Group group = groupRepository.findById(groupId)
-                .orElseThrow(() -> new RuntimeException("Group not found"));
+    // Messages and files are removed afterwards by a background job, which is returned
+    public CleanupJob deleteGroup(String groupId, String userEmail) {
+        Group group = getGroup(groupId);
         
-        User user = userRepository.findByEmail(userEmail)
+        UserSummary user = userRepository.findSummaryByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
         // Only creator can delete group
@@ -117,6 +174,50 @@ public class GroupService {
             throw new RuntimeException("Unauthorized to delete this group");
         }
         
-        groupRepository.delete(group);
+        // The job is recorded first, so a failure in between never leaves a deleted group's messages behind
+        CleanupJob job = groupCleanupService.schedule(group, user.getId());
+        try {
+            groupRepository.deleteById(groupId);
+        } catch (RuntimeException e) {
+            groupCleanupService.cancel(job);
+            throw e;
+        }
+        metadataCache.evictGroup(groupId);
+        searchIndexService.removeGroup(groupId);
+        chatActivityService.removeChat(groupId);
+        eventPublisher.publishEvent(new GroupMembershipChangedEvent(groupId));
+        groupCleanupService.poll();
+        return job;
+    }
+    
+    public CleanupJob getCleanupJob(String jobId, String userEmail) {
+        UserSummary user = userRepository.findSummaryByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        return groupCleanupService.getJob(jobId, user.getId());
+    }
+    
+    // One round trip that applies the update and returns the stored group; concurrent writers never overwrite each other
+    private Group modify(String groupId, Update update) {
+        Group group = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(groupId)),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                Group.class);
+        metadataCache.evictGroup(groupId);
+        if (group == null) {
+            throw new RuntimeException("Group not found");
+        }
+        return group;
+    }
+    
+    public List<Group> searchGroups(String query, int limit) {
+        List<String> ids = searchIndexService.searchGroupIds(query, limit);
+        
+        Map<String, Group> groupsById = new HashMap<>();
+        groupRepository.findAllById(ids).forEach(group -> groupsById.put(group.getId(), group));
+        return ids.stream()
+                .map(groupsById::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 }
@@ -0,0 +1,136 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.model.Message;
+import com.example.chatapp.model.MessageTombstone;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes batches of messages together with their attachments, for the
+ * background jobs that remove messages in bulk. File deletions from all jobs
+ * share one pace of {@code message.purge.file-deletes-per-second}, since
+ * Cloudinary limits the account as a whole. A message whose file could not be
+ * deleted is kept and given a {@code purgeAt} of now plus
+ * {@code message.purge.file-retry-delay}, which hands it to the attachment
+ * pass of {@link RetentionPurgeService} for another try. Deleted messages
+ * leave a {@link MessageTombstone}, so delta sync reports them.
+ */
+@Slf4j
+@Component
+public class MessagePurger {
+    
+    private final MongoTemplate mongoTemplate;
+    private final UploadService uploadService;
+    private final ChatMetadataCache metadataCache;
+    private final long fileDeleteIntervalNanos;
+    private final Duration fileRetryDelay;
+    private long nextFileDelete = System.nanoTime();
+    
+    private final Counter filesDeleted;
+    private final Counter filesFailed;
+    
+    public MessagePurger(MongoTemplate mongoTemplate,
+                         UploadService uploadService,
+                         ChatMetadataCache metadataCache,
+                         MeterRegistry meterRegistry,
+                         @Value("${message.purge.file-deletes-per-second:5}") double fileDeletesPerSecond,
+                         @Value("${message.purge.file-retry-delay:1h}") Duration fileRetryDelay) {
+        this.mongoTemplate = mongoTemplate;
+        this.uploadService = uploadService;
+        this.metadataCache = metadataCache;
+        this.fileDeleteIntervalNanos = (long) (1_000_000_000L / Math.max(0.01, fileDeletesPerSecond));
+        this.fileRetryDelay = fileRetryDelay;
+        
+        this.filesDeleted = meterRegistry.counter("chat.purge.files", "result", "deleted");
+        this.filesFailed = meterRegistry.counter("chat.purge.files", "result", "failed");
+    }
+    
+    public record Result(int deleted, int filesDeleted, int postponed) {
+    }
+    
+    public enum FileResult {
+        DELETED, NOT_OURS, FAILED
+    }
+    
+    // The messages need their id, chatId and fileUrl
+    public Result purge(List<Message> messages) {
+        List<String> ids = new ArrayList<>();
+        List<String> postponed = new ArrayList<>();
+        int files = 0;
+        for (Message message : messages) {
+            if (message.getFileUrl() == null) {
+                ids.add(message.getId());
+                continue;
+            }
+            FileResult result = deleteFile(message.getFileUrl());
+            if (result == FileResult.FAILED) {
+                postponed.add(message.getId());
+            } else {
+                ids.add(message.getId());
+                files += result == FileResult.DELETED ? 1 : 0;
+            }
+        }
+        if (!ids.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("id").in(ids)), Message.class);
+            messages.stream().map(Message::getChatId).distinct().forEach(metadataCache::evictPinnedMessages);
+            writeTombstones(messages, ids);
+        }
+        if (!postponed.isEmpty()) {
+            mongoTemplate.updateMulti(Query.query(Criteria.where("id").in(postponed)),
+                    new Update().set("purgeAt", LocalDateTime.now().plus(fileRetryDelay)), Message.class);
+        }
+        return new Result(ids.size(), files, postponed.size());
+    }
+    
+    private void writeTombstones(List<Message> messages, List<String> ids) {
+        Set<String> deleted = new HashSet<>(ids);
+        LocalDateTime now = LocalDateTime.now();
+        List<MessageTombstone> tombstones = messages.stream()
+                .filter(message -> deleted.contains(message.getId()))
+                .map(message -> MessageTombstone.builder()
+                        .messageId(message.getId())
+                        .chatId(message.getChatId())
+                        .deletedAt(now)
+                        .build())
+                .toList();
+        mongoTemplate.insert(tombstones, MessageTombstone.class);
+    }
+    
+    // Files hosted anywhere but our cloud are left alone
+    public synchronized FileResult deleteFile(String fileUrl) {
+        try {
+            long wait = nextFileDelete - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            nextFileDelete = Math.max(System.nanoTime(), nextFileDelete) + fileDeleteIntervalNanos;
+            if (!uploadService.deleteFileByUrl(fileUrl)) {
+                return FileResult.NOT_OURS;
+            }
+            filesDeleted.increment();
+            return FileResult.DELETED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return FileResult.FAILED;
+        } catch (Exception e) {
+            log.warn("Failed to delete attachment {}", fileUrl, e);
+            filesFailed.increment();
+            return FileResult.FAILED;
+        }
+    }
+}
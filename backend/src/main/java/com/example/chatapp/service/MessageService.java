@@ -1,20 +1,31 @@
 package com.example.chatapp.service;
 
 import com.example.chatapp.model.Message;
+import com.example.chatapp.model.MessageTombstone;
 import com.example.chatapp.model.User;
 import com.example.chatapp.model.dto.MessageRequest;
+import com.example.chatapp.model.dto.MessageResponse;
 import com.example.chatapp.repository.MessageRepository;
+import com.example.chatapp.repository.MessageTombstoneRepository;
 import com.example.chatapp.repository.UserRepository;
+import com.example.chatapp.util.TimeOrderedIdGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.HashMap;
 
 @Service
@@ -23,12 +34,69 @@ public class MessageService {
     
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
+    private final MessageTombstoneRepository tombstoneRepository;
+    private final TimeOrderedIdGenerator messageIdGenerator;
+    private final ClientMessageDedupe clientMessageDedupe;
+    private final ChatMetadataCache metadataCache;
+    private final ChatActivityService chatActivityService;
+    private final RetentionPolicyService retentionPolicyService;
+    private final MeterRegistry meterRegistry;
     
     public Message sendMessage(MessageRequest request, String senderEmail) {
         User sender = userRepository.findByEmail(senderEmail)
                 .orElseThrow(() -> new RuntimeException("Sender not found"));
         
+        return sendMessage(request, sender);
+    }
+    
+    public Message sendMessage(MessageRequest request, User sender) {
+        return send(request, sender).message();
+    }
+    
+    // Stores the message unless the sender already sent this client message id
+    public SendResult send(MessageRequest request, User sender) {
+        String clientMessageId = clientMessageId(request);
+        if (clientMessageId == null) {
+            return new SendResult(stored(messageRepository.insert(prepareMessage(request, sender))), false);
+        }
+        
+        String knownId = clientMessageDedupe.find(sender.getId(), clientMessageId);
+        if (knownId != null) {
+            Optional<Message> known = messageRepository.findById(knownId);
+            if (known.isPresent()) {
+                meterRegistry.counter("chat.send.duplicates", "source", "cache").increment();
+                return new SendResult(known.get(), true);
+            }
+        }
+        
+        try {
+            Message message = stored(messageRepository.insert(prepareMessage(request, sender)));
+            clientMessageDedupe.remember(sender.getId(), clientMessageId, message.getId());
+            return new SendResult(message, false);
+        } catch (DuplicateKeyException e) {
+            // Evicted from the cache, or a concurrent resend won the insert
+            Message stored = messageRepository.findBySenderIdAndClientMessageId(sender.getId(), clientMessageId)
+                    .orElseThrow(() -> e);
+            clientMessageDedupe.remember(sender.getId(), clientMessageId, stored.getId());
+            meterRegistry.counter("chat.send.duplicates", "source", "index").increment();
+            return new SendResult(stored, true);
+        }
+    }
+    
+    private Message stored(Message message) {
+        chatActivityService.recordMessage(message);
+        return message;
+    }
+    
+    // Builds the message with its final id and timestamps, so it can be referenced before it is stored
+    public Message prepareMessage(MessageRequest request, User sender) {
+        String id = messageIdGenerator.nextId();
+        LocalDateTime sentAt = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(TimeOrderedIdGenerator.timestampMillis(id)), ZoneId.systemDefault());
         Message message = Message.builder()
+                .id(id)
+                .timestamp(sentAt)
+                .editedAt(sentAt)
                 .chatId(request.getChatId())
                 .senderId(sender.getId())
                 .receiverId(request.getReceiverId())
@@ -38,14 +106,30 @@ public class MessageService {
                 .fileUrl(request.getFileUrl())
                 .fileName(request.getFileName())
                 .fileSize(request.getFileSize())
+                .clientMessageId(clientMessageId(request))
                 .build();
-        
-        return messageRepository.save(message);
+        retentionPolicyService.stamp(message);
+        return message;
+    }
+    
+    private static String clientMessageId(MessageRequest request) {
+        String clientMessageId = request.getClientMessageId();
+        return clientMessageId == null || clientMessageId.isBlank() ? null : clientMessageId;
     }
     
     public Page<Message> getMessages(String chatId, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("timestamp").descending());
-        return messageRepository.findByChatIdOrderByTimestampDesc(chatId, pageable);
+        Pageable pageable = PageRequest.of(page, size, Sort.by("id").descending());
+        return messageRepository.findByChatId(chatId, pageable);
+    }
+    
+    // Keyset paging: the page of messages older than the given id, newest first
+    public Slice<Message> getMessagesBefore(String chatId, String beforeId, int size) {
+        Pageable pageable = PageRequest.of(0, size, Sort.by("id").descending());
+        return messageRepository.findByChatIdAndIdLessThan(chatId, new ObjectId(beforeId), pageable);
+    }
+    
+    public List<Message> getPinnedMessages(String chatId) {
+        return metadataCache.getPinnedMessages(chatId);
     }
     
     public Message updateMessage(String messageId, String content, String userEmail) {
@@ -62,7 +146,9 @@ public class MessageService {
         message.setContent(content);
         message.setEditedAt(LocalDateTime.now());
         
-        return messageRepository.save(message);
+        message = messageRepository.save(message);
+        evictIfPinned(message);
+        return message;
     }
     
     public void deleteMessage(String messageId, String userEmail) {
@@ -77,6 +163,12 @@ public class MessageService {
         }
         
         messageRepository.delete(message);
+        evictIfPinned(message);
+        tombstoneRepository.save(MessageTombstone.builder()
+                .messageId(message.getId())
+                .chatId(message.getChatId())
+                .deletedAt(LocalDateTime.now())
+                .build());
     }
     
     public Message reactToMessage(String messageId, String emoji, String userEmail) {
@@ -99,7 +191,9 @@ public class MessageService {
         
         message.getReactions().add(reaction);
         
-        return messageRepository.save(message);
+        message = messageRepository.save(message);
+        evictIfPinned(message);
+        return message;
     }
     
     public Message pinMessage(String messageId, String userEmail) {
@@ -112,7 +206,16 @@ public class MessageService {
         // For now, allow anyone in the chat to pin/unpin messages
         message.setPinned(!message.getPinned());
         
-        return messageRepository.save(message);
+        message = messageRepository.save(message);
+        metadataCache.evictPinnedMessages(message.getChatId());
+        return message;
+    }
+    
+    // Pinned lists carry the whole message, so any change to a pinned one refreshes its chat's list
+    private void evictIfPinned(Message message) {
+        if (Boolean.TRUE.equals(message.getPinned())) {
+            metadataCache.evictPinnedMessages(message.getChatId());
+        }
     }
     
     public Map<String, Object> searchMessages(String query, String chatId, int page, int size) {
@@ -126,24 +229,13 @@ public class MessageService {
         }
         
         Map<String, Object> result = new HashMap<>();
-        result.put("messages", messagesPage.getContent());
+        result.put("messages", MessageResponse.from(messagesPage.getContent()));
         result.put("totalCount", messagesPage.getTotalElements());
         result.put("hasMore", messagesPage.hasNext());
         
         return result;
     }
     
-    public void markAsRead(String messageId, String userEmail) {
-        Message message = messageRepository.findById(messageId)
-                .orElseThrow(() -> new RuntimeException("Message not found"));
-        
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        // Only mark as read if the user is the receiver
-        if (message.getReceiverId() != null && message.getReceiverId().equals(user.getId())) {
-            message.setStatus(Message.MessageStatus.READ);
-            messageRepository.save(message);
-        }
+    public record SendResult(Message message, boolean duplicate) {
     }
 }
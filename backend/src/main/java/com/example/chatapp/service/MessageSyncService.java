@@ -0,0 +1,232 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.model.Message;
+import com.example.chatapp.model.MessageTombstone;
+import com.example.chatapp.model.dto.MessageResponse;
+import com.example.chatapp.model.dto.SyncResponse;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Delta sync for reconnecting clients. Each chat cursor is the
+ * (editedAt, id) position of the last change the client has seen; every
+ * write to a message moves its editedAt, so messages after the cursor in
+ * that order are exactly the new and changed ones. Chats are queried in
+ * batches with one $or query each, and deletions come from tombstones.
+ * Every synced chat's cursor moves forward, to its last returned change or
+ * to the sync's high-water mark, so quiet chats neither replay deletions nor
+ * age into a reset. Only chats the caller belongs to are synced.
+ */
+@Service
+@RequiredArgsConstructor
+public class MessageSyncService {
+    
+    private static final String CURSOR_SEPARATOR = "|";
+    // Writes stamped just before a sync may not be visible to it yet; they are read again next time
+    private static final Duration HIGH_WATER_LAG = Duration.ofSeconds(5);
+    
+    private final MongoTemplate mongoTemplate;
+    private final ChatMembershipCache membershipCache;
+    private final RetentionPolicyService retentionPolicyService;
+    
+    @Value("${sync.max-chats:200}")
+    private int maxChats;
+    
+    @Value("${sync.batch-size:50}")
+    private int batchSize;
+    
+    @Value("${sync.max-messages:500}")
+    private int maxMessages;
+    
+    @Value("${sync.per-chat-limit:200}")
+    private int perChatLimit;
+    
+    @Value("${sync.max-tombstones:1000}")
+    private int maxTombstones;
+    
+    // Chats the user is not a member of are left out of the response
+    public SyncResponse sync(String userId, Map<String, String> cursors) {
+        if (cursors.size() > maxChats) {
+            throw new RuntimeException("Too many chats to sync");
+        }
+        
+        SyncResponse response = new SyncResponse();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime oldestCursor = now.minus(MessageTombstone.RETENTION);
+        LocalDateTime highWater = now.minus(HIGH_WATER_LAG);
+        
+        List<Cursor> pending = new ArrayList<>();
+        cursors.forEach((chatId, value) -> {
+            if (!membershipCache.isMember(chatId, userId)) {
+                return;
+            }
+            SyncResponse.ChatDelta delta = new SyncResponse.ChatDelta();
+            response.getChats().put(chatId, delta);
+            Duration retention = retentionPolicyService.retentionFor(chatId);
+            delta.setRetentionDays(retention != null ? retention.toDays() : null);
+            
+            Cursor cursor = Cursor.parse(chatId, value);
+            if (cursor == null || cursor.editedAt().isBefore(oldestCursor)) {
+                // Deletions older than the tombstone retention are no longer known
+                delta.setReset(true);
+                delta.setCursor(highWater.toString());
+            } else {
+                delta.setCursor(value);
+                pending.add(cursor);
+            }
+        });
+        
+        int remaining = maxMessages;
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<Cursor> batch = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            int returned = syncBatch(batch, remaining, highWater, response);
+            if (returned < 0) {
+                response.setHasMore(true);
+                break;
+            }
+            remaining -= returned;
+            if (remaining <= 0 && from + batchSize < pending.size()) {
+                response.setHasMore(true);
+                break;
+            }
+        }
+        
+        return response;
+    }
+    
+    // Returns the number of messages added, or -1 when the batch was truncated
+    private int syncBatch(List<Cursor> batch, int limit, LocalDateTime highWater, SyncResponse response) {
+        Criteria changedSince = new Criteria().andOperator(
+                new Criteria().orOperator(batch.stream().map(Cursor::after).toArray(Criteria[]::new)),
+                Criteria.where("editedAt").lte(highWater));
+        Query query = new Query(changedSince)
+                .with(Sort.by(Sort.Direction.ASC, "editedAt", "id"))
+                .limit(limit + 1);
+        List<Message> changed = mongoTemplate.find(query, Message.class);
+        
+        boolean truncated = changed.size() > limit;
+        if (truncated) {
+            changed = changed.subList(0, limit);
+        }
+        
+        Map<String, List<Message>> byChat = new LinkedHashMap<>();
+        for (Message message : changed) {
+            byChat.computeIfAbsent(message.getChatId(), id -> new ArrayList<>()).add(message);
+        }
+        byChat.forEach((chatId, messages) -> {
+            SyncResponse.ChatDelta delta = response.getChats().get(chatId);
+            if (messages.size() > perChatLimit) {
+                delta.setReset(true);
+                return;
+            }
+            delta.getMessages().addAll(MessageResponse.from(messages));
+            delta.setCursor(Cursor.of(messages.get(messages.size() - 1)));
+        });
+        
+        // A truncated batch is only complete up to its last change, so deletions are bounded the same way
+        LocalDateTime upperBound = truncated ? changed.get(changed.size() - 1).getEditedAt() : highWater;
+        collectDeletions(batch, upperBound, response);
+        
+        // Every chat in the batch is now complete up to the same point, changed or not
+        String complete = truncated ? Cursor.of(changed.get(changed.size() - 1)) : highWater.toString();
+        for (Cursor cursor : batch) {
+            SyncResponse.ChatDelta delta = response.getChats().get(cursor.chatId());
+            if (delta.isReset()) {
+                // The reload that follows happens after the high-water mark
+                delta.setCursor(highWater.toString());
+            } else if (Cursor.compare(delta.getCursor(), complete) < 0) {
+                delta.setCursor(complete);
+            }
+        }
+        
+        return truncated ? -1 : changed.size();
+    }
+    
+    private void collectDeletions(List<Cursor> batch, LocalDateTime upperBound, SyncResponse response) {
+        Criteria deletedSince = new Criteria().andOperator(
+                new Criteria().orOperator(batch.stream()
+                        .map(cursor -> Criteria.where("chatId").is(cursor.chatId()).and("deletedAt").gte(cursor.editedAt()))
+                        .toArray(Criteria[]::new)),
+                Criteria.where("deletedAt").lte(upperBound));
+        Query query = new Query(deletedSince)
+                .with(Sort.by(Sort.Direction.ASC, "deletedAt"))
+                .limit(maxTombstones + 1);
+        List<MessageTombstone> tombstones = mongoTemplate.find(query, MessageTombstone.class);
+        
+        // Too many deletions to report in one response; the affected chats reload instead
+        boolean overflow = tombstones.size() > maxTombstones;
+        Set<String> overflowed = new HashSet<>();
+        for (MessageTombstone tombstone : tombstones) {
+            SyncResponse.ChatDelta delta = response.getChats().get(tombstone.getChatId());
+            if (overflow && overflowed.add(tombstone.getChatId())) {
+                delta.setReset(true);
+                delta.getMessages().clear();
+                delta.getDeletedIds().clear();
+            }
+            if (!delta.isReset()) {
+                delta.getDeletedIds().add(tombstone.getMessageId());
+            }
+        }
+    }
+    
+    record Cursor(String chatId, LocalDateTime editedAt, String messageId) {
+        
+        static Cursor parse(String chatId, String value) {
+            if (value == null || value.isBlank()) {
+                return null;
+            }
+            int separator = value.indexOf(CURSOR_SEPARATOR);
+            try {
+                LocalDateTime editedAt = LocalDateTime.parse(separator < 0 ? value : value.substring(0, separator));
+                String messageId = separator < 0 ? null : value.substring(separator + 1);
+                return new Cursor(chatId, editedAt, messageId != null && ObjectId.isValid(messageId) ? messageId : null);
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+        
+        static String of(Message message) {
+            return message.getEditedAt() + CURSOR_SEPARATOR + message.getId();
+        }
+        
+        // Orders cursor strings by position; an id-less cursor sits after every message at its time
+        static int compare(String left, String right) {
+            Cursor a = parse(null, left);
+            Cursor b = parse(null, right);
+            int byTime = a.editedAt().compareTo(b.editedAt());
+            if (byTime != 0) {
+                return byTime;
+            }
+            if (a.messageId() == null || b.messageId() == null) {
+                return a.messageId() == null ? (b.messageId() == null ? 0 : 1) : -1;
+            }
+            return a.messageId().compareTo(b.messageId());
+        }
+        
+        Criteria after() {
+            Criteria chat = Criteria.where("chatId").is(chatId);
+            if (messageId == null) {
+                return chat.and("editedAt").gt(editedAt);
+            }
+            return chat.orOperator(
+                    Criteria.where("editedAt").gt(editedAt),
+                    Criteria.where("editedAt").is(editedAt).and("id").gt(new ObjectId(messageId)));
+        }
+    }
+}
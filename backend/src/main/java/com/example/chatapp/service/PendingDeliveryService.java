@@ -0,0 +1,258 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.model.ChatActivity;
+import com.example.chatapp.model.Message;
+import com.example.chatapp.model.PendingDelivery;
+import com.example.chatapp.model.User;
+import com.example.chatapp.model.dto.MessageResponse;
+import com.example.chatapp.model.dto.PendingDeliveryBatch;
+import com.example.chatapp.repository.MessageRepository;
+import com.example.chatapp.repository.PendingDeliveryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delivery to users' personal queues. Recipients with a live session get
+ * the message right away; for the others a direct message is queued in
+ * {@code pending_deliveries}, at most {@code delivery.pending.max-per-user}
+ * per user, and handed over in one batch when they next subscribe to
+ * {@code /app/deliveries.pending} after connecting. Group messages are not
+ * copied per member: the drain reads them from the chats the user's activity
+ * index shows as active since the user's last session ended. Batches are
+ * handed over oldest first and only what a batch carries is removed; a
+ * truncated batch carries a cursor for the client's next drain.
+ */
+@Service
+public class PendingDeliveryService {
+    
+    public static final String USER_QUEUE = "/queue/messages";
+    
+    private final PendingDeliveryRepository pendingDeliveryRepository;
+    private final MessageRepository messageRepository;
+    private final MongoTemplate mongoTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SimpUserRegistry userRegistry;
+    private final UserService userService;
+    private final int maxBatch;
+    private final int maxPerUser;
+    
+    private final Counter queuedCounter;
+    private final Counter trimmedCounter;
+    private final Counter drainedCounter;
+    private final DistributionSummary batchSize;
+    
+    public PendingDeliveryService(PendingDeliveryRepository pendingDeliveryRepository,
+                                  MessageRepository messageRepository,
+                                  MongoTemplate mongoTemplate,
+                                  SimpMessagingTemplate messagingTemplate,
+                                  SimpUserRegistry userRegistry,
+                                  UserService userService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${delivery.pending.max-batch:200}") int maxBatch,
+                                  @Value("${delivery.pending.max-per-user:1000}") int maxPerUser) {
+        this.pendingDeliveryRepository = pendingDeliveryRepository;
+        this.messageRepository = messageRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.messagingTemplate = messagingTemplate;
+        this.userRegistry = userRegistry;
+        this.userService = userService;
+        this.maxBatch = maxBatch;
+        this.maxPerUser = maxPerUser;
+        
+        this.queuedCounter = Counter.builder("chat.delivery.queued")
+                .description("Messages queued for recipients without a session")
+                .register(meterRegistry);
+        this.trimmedCounter = Counter.builder("chat.delivery.trimmed")
+                .description("Queued messages dropped because a user's queue was full")
+                .register(meterRegistry);
+        this.drainedCounter = Counter.builder("chat.delivery.drained")
+                .description("Queued messages handed over on reconnect")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("chat.delivery.drain.batch")
+                .description("Messages per drained batch")
+                .register(meterRegistry);
+    }
+    
+    // Sends to each recipient's personal queue, or queues the message for the ones that are offline
+    public void deliverToUsers(Message message, MessageResponse payload, Map<String, Object> headers,
+                               Collection<String> userIds) {
+        Map<String, String> emails = userService.getEmails(userIds);
+        List<PendingDelivery> queued = new ArrayList<>();
+        for (String userId : userIds) {
+            String email = emails.get(userId);
+            if (email == null) {
+                continue;
+            }
+            if (isOnline(email)) {
+                messagingTemplate.convertAndSendToUser(email, USER_QUEUE, payload, headers);
+            } else if (!userId.equals(message.getSenderId())) {
+                queued.add(pendingFor(userId, message));
+            }
+        }
+        save(queued);
+    }
+    
+    // Group members, with one prepared frame shared by every recipient; offline members catch up on drain
+    public void deliverFrame(org.springframework.messaging.Message<?> frame, Collection<String> userIds) {
+        userService.getEmails(userIds).values().forEach(email -> {
+            if (isOnline(email)) {
+                messagingTemplate.send(userDestination(email), frame);
+            }
+        });
+    }
+    
+    // Marks where a user's group catch-up starts once their last session has gone
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Principal principal = event.getUser();
+        if (principal == null) {
+            return;
+        }
+        SimpUser user = userRegistry.getUser(principal.getName());
+        if (user != null && user.getSessions().stream().anyMatch(session -> !session.getId().equals(event.getSessionId()))) {
+            return;
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("email").is(principal.getName())),
+                Update.update("lastSeen", LocalDateTime.now()), User.class);
+    }
+    
+    // groupCursor: the cursor of the previous, truncated batch, or null
+    public PendingDeliveryBatch drain(String userId, String groupCursor) {
+        List<PendingDelivery> pending = pendingDeliveryRepository.findByUserId(userId,
+                PageRequest.of(0, maxBatch + 1, Sort.by(Sort.Direction.ASC, "id")));
+        boolean truncated = pending.size() > maxBatch;
+        if (truncated) {
+            pending = pending.subList(0, maxBatch);
+        }
+        
+        List<MessageResponse> messages = new ArrayList<>();
+        if (!pending.isEmpty()) {
+            List<String> messageIds = pending.stream().map(PendingDelivery::getMessageId).toList();
+            messageRepository.findAllById(messageIds).forEach(message -> messages.add(MessageResponse.from(message)));
+            
+            // Only what this batch hands over; the rest waits for the next drain
+            mongoTemplate.remove(Query.query(Criteria.where("id").in(pending.stream().map(PendingDelivery::getId).toList())),
+                    PendingDelivery.class);
+        }
+        
+        // Group messages follow once the queue is empty; until then the cursor stays where it was
+        String cursor = groupCursor;
+        int room = maxBatch - pending.size();
+        if (room > 0) {
+            List<Message> missed = missedGroupMessages(userId, groupCursor, room + 1);
+            if (missed.size() > room) {
+                truncated = true;
+                missed = missed.subList(0, room);
+                cursor = missed.get(room - 1).getId();
+            }
+            missed.forEach(message -> messages.add(MessageResponse.from(message)));
+        }
+        if (messages.isEmpty()) {
+            return new PendingDeliveryBatch(messages, truncated, null);
+        }
+        messages.sort(Comparator.comparing(MessageResponse::getId));
+        
+        drainedCounter.increment(messages.size());
+        batchSize.record(messages.size());
+        return new PendingDeliveryBatch(messages, truncated, truncated ? cursor : null);
+    }
+    
+    // Oldest first: messages from others, after the cursor, in groups active since the user was last seen
+    private List<Message> missedGroupMessages(String userId, String after, int limit) {
+        Query userQuery = Query.query(Criteria.where("id").is(userId));
+        userQuery.fields().include("lastSeen");
+        User user = mongoTemplate.findOne(userQuery, User.class);
+        if (user == null || user.getLastSeen() == null) {
+            return List.of();
+        }
+        String since = idAt(user.getLastSeen());
+        
+        Query activeQuery = Query.query(Criteria.where("userId").is(userId).and("activityId").gt(since));
+        activeQuery.fields().include("chatId");
+        List<String> chatIds = mongoTemplate.find(activeQuery, ChatActivity.class).stream()
+                .map(ChatActivity::getChatId)
+                .toList();
+        if (chatIds.isEmpty()) {
+            return List.of();
+        }
+        String from = after != null && ObjectId.isValid(after) && after.compareTo(since) > 0 ? after : since;
+        Query missedQuery = Query.query(Criteria.where("chatId").in(chatIds)
+                        .and("_id").gt(new ObjectId(from))
+                        .and("groupId").ne(null)
+                        .and("senderId").ne(userId))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(limit);
+        return mongoTemplate.find(missedQuery, Message.class);
+    }
+    
+    // The smallest ObjectId-format id of the given time's second
+    private static String idAt(LocalDateTime time) {
+        return String.format("%08x", time.atZone(ZoneId.systemDefault()).toEpochSecond()) + "0000000000000000";
+    }
+    
+    private boolean isOnline(String email) {
+        SimpUser user = userRegistry.getUser(email);
+        return user != null && user.hasSessions();
+    }
+    
+    // What convertAndSendToUser resolves to
+    private static String userDestination(String email) {
+        return "/user/" + email.replace("/", "%2F") + USER_QUEUE;
+    }
+    
+    private PendingDelivery pendingFor(String userId, Message message) {
+        return PendingDelivery.builder()
+                .userId(userId)
+                .messageId(message.getId())
+                .queuedAt(LocalDateTime.now())
+                .build();
+    }
+    
+    private void save(List<PendingDelivery> queued) {
+        if (queued.isEmpty()) {
+            return;
+        }
+        pendingDeliveryRepository.insert(queued);
+        queuedCounter.increment(queued.size());
+        queued.forEach(pending -> trim(pending.getUserId()));
+    }
+    
+    // Drops a user's oldest queued entries beyond the cap; those messages stay in their chat's history
+    private void trim(String userId) {
+        Query boundaryQuery = Query.query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.DESC, "id"))
+                .skip(maxPerUser)
+                .limit(1);
+        boundaryQuery.fields().include("id");
+        PendingDelivery boundary = mongoTemplate.findOne(boundaryQuery, PendingDelivery.class);
+        if (boundary != null) {
+            long trimmed = mongoTemplate.remove(Query.query(Criteria.where("userId").is(userId)
+                    .and("id").lte(new ObjectId(boundary.getId()))), PendingDelivery.class).getDeletedCount();
+            trimmedCounter.increment(trimmed);
+        }
+    }
+}
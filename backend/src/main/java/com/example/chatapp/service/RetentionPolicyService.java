@@ -0,0 +1,148 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.model.ChatRetention;
+import com.example.chatapp.model.DirectChat;
+import com.example.chatapp.model.Group;
+import com.example.chatapp.model.Message;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves how long a chat's messages are kept: the chat's own policy, else
+ * {@code message.retention.default}; zero keeps them forever. The expiry is
+ * stamped on each message when it is sent, so most messages are removed by
+ * the TTL index on {@code expireAt} without any work here. Messages with an
+ * attachment are stamped with {@code purgeAt} instead and left to
+ * {@link RetentionPurgeService}, which also deletes the file.
+ *
+ * <p>Changing a chat's policy restamps that chat's stored messages. A changed
+ * default applies to messages sent afterwards and to messages stored without
+ * an expiry.
+ */
+@Slf4j
+@Service
+public class RetentionPolicyService {
+    
+    // Chats with their own policy; reloaded by every purge run to pick up changes made on other instances
+    private volatile Map<String, Duration> policies = new ConcurrentHashMap<>();
+    
+    private final MongoTemplate mongoTemplate;
+    private final ChatMetadataCache metadataCache;
+    private final Duration defaultRetention;
+    
+    public RetentionPolicyService(MongoTemplate mongoTemplate,
+                                  ChatMetadataCache metadataCache,
+                                  @Value("${message.retention.default:0d}") Duration defaultRetention) {
+        this.mongoTemplate = mongoTemplate;
+        this.metadataCache = metadataCache;
+        this.defaultRetention = defaultRetention.isNegative() || defaultRetention.isZero() ? null : defaultRetention;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        Map<String, Duration> loaded = new ConcurrentHashMap<>();
+        mongoTemplate.findAll(ChatRetention.class)
+                .forEach(policy -> loaded.put(policy.getId(), Duration.ofDays(policy.getRetentionDays())));
+        policies = loaded;
+    }
+    
+    // How long the chat's messages are kept, or null to keep them forever
+    public Duration retentionFor(String chatId) {
+        Duration retention = chatId != null ? policies.get(chatId) : null;
+        return retention != null ? retention : defaultRetention;
+    }
+    
+    public Duration getDefaultRetention() {
+        return defaultRetention;
+    }
+    
+    public void stamp(Message message) {
+        Duration retention = retentionFor(message.getChatId());
+        if (retention == null) {
+            return;
+        }
+        LocalDateTime expiry = message.getTimestamp().plus(retention);
+        if (message.getFileUrl() != null) {
+            message.setPurgeAt(expiry);
+        } else {
+            message.setExpireAt(expiry);
+        }
+    }
+    
+    // Sets or, with null days, clears the chat's own policy; group creators and direct chat participants only
+    public ChatRetention setPolicy(String chatId, Integer days, String userId) {
+        authorize(chatId, userId);
+        if (days != null && days < 1) {
+            throw new RuntimeException("Retention must be at least one day");
+        }
+        
+        ChatRetention policy = null;
+        if (days == null) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(chatId)), ChatRetention.class);
+            policies.remove(chatId);
+        } else {
+            policy = ChatRetention.builder()
+                    .id(chatId)
+                    .retentionDays(days)
+                    .updatedBy(userId)
+                    .updatedAt(LocalDateTime.now())
+                    .build();
+            mongoTemplate.save(policy);
+            policies.put(chatId, Duration.ofDays(days));
+        }
+        restamp(chatId);
+        return policy;
+    }
+    
+    // Recomputes the expiry of the chat's stored messages from their send time, server-side in two updates
+    private void restamp(String chatId) {
+        Duration retention = retentionFor(chatId);
+        if (retention == null) {
+            mongoTemplate.updateMulti(Query.query(Criteria.where("chatId").is(chatId)),
+                    new Update().unset("expireAt").unset("purgeAt"), Message.class);
+            return;
+        }
+        long millis = retention.toMillis();
+        mongoTemplate.updateMulti(Query.query(Criteria.where("chatId").is(chatId).and("fileUrl").is(null)),
+                AggregationUpdate.update()
+                        .set("expireAt").toValue(ArithmeticOperators.valueOf("timestamp").add(millis))
+                        .unset("purgeAt"),
+                Message.class);
+        mongoTemplate.updateMulti(Query.query(Criteria.where("chatId").is(chatId).and("fileUrl").ne(null)),
+                AggregationUpdate.update()
+                        .set("purgeAt").toValue(ArithmeticOperators.valueOf("timestamp").add(millis))
+                        .unset("expireAt"),
+                Message.class);
+        log.info("Restamped retention of chat {} to {}", chatId, retention);
+    }
+    
+    private void authorize(String chatId, String userId) {
+        String[] participants = DirectChat.participantIds(chatId);
+        if (participants != null) {
+            if (!Arrays.asList(participants).contains(userId)) {
+                throw new RuntimeException("Unauthorized to change retention of this chat");
+            }
+            return;
+        }
+        Group group = metadataCache.getGroup(chatId)
+                .orElseThrow(() -> new RuntimeException("Chat not found"));
+        if (!group.getCreatedBy().equals(userId)) {
+            throw new RuntimeException("Unauthorized to change retention of this chat");
+        }
+    }
+}
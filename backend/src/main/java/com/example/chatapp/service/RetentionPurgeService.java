@@ -0,0 +1,180 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.model.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Deletes the expired messages that the TTL index does not: messages with an
+ * attachment, whose file is deleted from Cloudinary first, and messages stored
+ * without an expiry that the default retention now covers. Each run, every
+ * {@code message.retention.purge-interval-ms} on its own thread, deletes at
+ * most {@code max-batches-per-run} batches of {@code batch-size}, pauses
+ * between batches, so purging a large backlog is spread over many runs.
+ * Files are deleted through {@link MessagePurger}, which paces them and
+ * postpones the messages whose file could not be deleted, so they do not hold
+ * up the messages behind them.
+ */
+@Slf4j
+@Service
+public class RetentionPurgeService {
+    
+    private static final String MIN_ID = "000000000000000000000000";
+    
+    private final MongoTemplate mongoTemplate;
+    private final RetentionPolicyService policyService;
+    private final MessagePurger messagePurger;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long batchPauseMs;
+    
+    private final ThreadPoolTaskExecutor worker;
+    private final AtomicBoolean running = new AtomicBoolean();
+    // Messages without an expiry are already swept below this id
+    private volatile String sweptTo = MIN_ID;
+    private volatile long sweepLagSeconds;
+    
+    private final Timer runTimer;
+    private final Counter attachmentsPurged;
+    private final Counter sweptPurged;
+    
+    public RetentionPurgeService(MongoTemplate mongoTemplate,
+                                 RetentionPolicyService policyService,
+                                 MessagePurger messagePurger,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${message.retention.batch-size:200}") int batchSize,
+                                 @Value("${message.retention.max-batches-per-run:10}") int maxBatchesPerRun,
+                                 @Value("${message.retention.batch-pause-ms:100}") long batchPauseMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.policyService = policyService;
+        this.messagePurger = messagePurger;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+        this.batchPauseMs = batchPauseMs;
+        
+        this.worker = new ThreadPoolTaskExecutor();
+        worker.setCorePoolSize(1);
+        worker.setMaxPoolSize(1);
+        worker.setThreadNamePrefix("retention-purge-");
+        worker.initialize();
+        
+        this.runTimer = Timer.builder("chat.retention.run")
+                .description("One retention purge run")
+                .register(meterRegistry);
+        this.attachmentsPurged = meterRegistry.counter("chat.retention.purged", "reason", "attachment");
+        this.sweptPurged = meterRegistry.counter("chat.retention.purged", "reason", "sweep");
+        Gauge.builder("chat.retention.sweep.lag", this, service -> service.sweepLagSeconds)
+                .description("Age of the oldest expired message the sweep has not reached yet")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+    
+    @Scheduled(fixedDelayString = "${message.retention.purge-interval-ms:60000}")
+    public void schedule() {
+        // A run that outlasts the interval is not overlapped
+        if (running.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                try {
+                    runTimer.record(this::purge);
+                } catch (RuntimeException e) {
+                    log.warn("Retention purge failed", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        }
+    }
+    
+    public void purge() {
+        policyService.reload();
+        int batches = purgeDueAttachments();
+        if (batches < maxBatchesPerRun && policyService.getDefaultRetention() != null) {
+            sweepUnstamped(maxBatchesPerRun - batches);
+        }
+    }
+    
+    // Messages with an attachment whose expiry has passed, oldest expiry first; returns the batches used
+    private int purgeDueAttachments() {
+        int batches = 0;
+        while (batches < maxBatchesPerRun) {
+            Query query = Query.query(Criteria.where("purgeAt").lte(LocalDateTime.now()))
+                    .with(Sort.by("purgeAt"))
+                    .limit(batchSize);
+            query.fields().include("chatId", "fileUrl");
+            List<Message> due = mongoTemplate.find(query, Message.class);
+            if (due.isEmpty()) {
+                break;
+            }
+            batches++;
+            attachmentsPurged.increment(messagePurger.purge(due).deleted());
+            if (due.size() < batchSize || !pause()) {
+                break;
+            }
+        }
+        return batches;
+    }
+    
+    // Messages stored without an expiry and older than the default retention, in id order from the mark
+    private void sweepUnstamped(int maxBatches) {
+        Instant cutoff = Instant.now().minus(policyService.getDefaultRetention());
+        String cutoffId = idAt(cutoff);
+        for (int batches = 0; batches < maxBatches; batches++) {
+            Query query = Query.query(Criteria.where("_id").gt(new ObjectId(sweptTo)).lt(new ObjectId(cutoffId))
+                            .and("expireAt").exists(false)
+                            .and("purgeAt").exists(false))
+                    .with(Sort.by("_id"))
+                    .limit(batchSize);
+            query.fields().include("chatId", "fileUrl");
+            List<Message> expired = mongoTemplate.find(query, Message.class);
+            if (expired.isEmpty()) {
+                sweptTo = cutoffId;
+                break;
+            }
+            // Messages whose file is left get a purgeAt, so the attachment pass retries them
+            sweptPurged.increment(messagePurger.purge(expired).deleted());
+            sweptTo = expired.size() < batchSize ? cutoffId : expired.get(expired.size() - 1).getId();
+            if (!pause()) {
+                break;
+            }
+        }
+        sweepLagSeconds = Math.max(0, cutoff.getEpochSecond() - Long.parseLong(sweptTo.substring(0, 8), 16));
+    }
+    
+    private boolean pause() {
+        try {
+            Thread.sleep(batchPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    // The smallest ObjectId-format id of the given second
+    private static String idAt(Instant instant) {
+        return String.format("%08x", instant.getEpochSecond()) + MIN_ID.substring(8);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.chatapp.service;
+
+import com.example.chatapp.model.Group;
+import com.example.chatapp.model.User;
+import com.example.chatapp.repository.GroupRepository;
+import com.example.chatapp.repository.UserRepository;
+import com.example.chatapp.util.PrefixIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SearchIndexService {
+    
+    private static final int MAX_PREFIX_LENGTH = 20;
+    
+    private final UserRepository userRepository;
+    private final GroupRepository groupRepository;
+    
+    private final PrefixIndex userIndex = new PrefixIndex(MAX_PREFIX_LENGTH);
+    private final PrefixIndex groupIndex = new PrefixIndex(MAX_PREFIX_LENGTH);
+    
+    @Value("${search.max-results:20}")
+    private int maxResults;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        userIndex.clear();
+        groupIndex.clear();
+        userRepository.findAll().forEach(this::indexUser);
+        groupRepository.findAll().forEach(this::indexGroup);
+        log.info("Search index built: {} users, {} groups", userIndex.size(), groupIndex.size());
+    }
+    
+    public void indexUser(User user) {
+        userIndex.put(user.getId(), user.getName(), user.getName(), user.getEmail());
+    }
+    
+    public void indexGroup(Group group) {
+        groupIndex.put(group.getId(), group.getName(), group.getName());
+    }
+    
+    public void removeGroup(String groupId) {
+        groupIndex.remove(groupId);
+    }
+    
+    public List<String> searchUserIds(String query, int limit) {
+        return userIndex.search(query, boundedLimit(limit));
+    }
+    
+    public List<String> searchGroupIds(String query, int limit) {
+        return groupIndex.search(query, boundedLimit(limit));
+    }
+    
+    private int boundedLimit(int limit) {
+        return limit <= 0 ? maxResults : Math.min(limit, maxResults);
+    }
+}
@@ -75,4 +75,26 @@ public class UploadService {
         Cloudinary cloudinary = getCloudinary();
         cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
     }
+    
+    public void deleteFile(String publicId, String resourceType) throws IOException {
+        Cloudinary cloudinary = getCloudinary();
+        cloudinary.uploader().destroy(publicId, ObjectUtils.asMap("resource_type", resourceType));
+    }
+    
+    // Deletes the file behind a delivery URL of this cloud; false if the URL points anywhere else
+    public boolean deleteFileByUrl(String fileUrl) throws IOException {
+        // https://res.cloudinary.com/{cloud}/{resource type}/upload/v{version}/{public id}[.{format}]
+        String prefix = "https://res.cloudinary.com/" + cloudName + "/";
+        int upload = fileUrl.indexOf("/upload/");
+        if (!fileUrl.startsWith(prefix) || upload < 0) {
+            return false;
+        }
+        String resourceType = fileUrl.substring(prefix.length(), upload);
+        String path = fileUrl.substring(upload + "/upload/".length()).replaceFirst("^v\\d+/", "");
+        // Raw files keep their extension in the public id
+        int dot = path.lastIndexOf('.');
+        String publicId = resourceType.equals("raw") || dot < path.lastIndexOf('/') + 1 ? path : path.substring(0, dot);
+        deleteFile(publicId, resourceType);
+        return true;
+    }
 }
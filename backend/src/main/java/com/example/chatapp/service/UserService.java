@@ -2,15 +2,23 @@ package com.example.chatapp.service;
 
 import com.example.chatapp.model.User;
 import com.example.chatapp.model.dto.UserUpdateRequest;
+import com.example.chatapp.model.projection.UserActivity;
+import com.example.chatapp.model.projection.UserSummary;
 import com.example.chatapp.repository.UserRepository;
 import com.example.chatapp.repository.MessageRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
@@ -18,6 +26,13 @@ public class UserService {
     
     private final UserRepository userRepository;
     private final MessageRepository messageRepository;
+    private final SearchIndexService searchIndexService;
+    
+    // Principal names are emails; this maps user ids to them for user destinations
+    private final Cache<String, String> emailsById = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
     
     public User getCurrentUser(String email) {
         return userRepository.findByEmail(email)
@@ -29,6 +44,34 @@ public class UserService {
                 .orElse(null);
     }
     
+    // Id and name only, for callers that just identify or label a user
+    public UserSummary getUserSummary(String email) {
+        return userRepository.findSummaryByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+    
+    public UserSummary getUserSummaryById(String userId) {
+        return userRepository.findSummaryById(userId)
+                .orElse(null);
+    }
+    
+    public Map<String, String> getEmails(Collection<String> userIds) {
+        return emailsById.getAll(userIds, missing -> {
+            Map<String, String> emails = new HashMap<>();
+            userRepository.findSummariesByIdIn(new ArrayList<>(missing))
+                    .forEach(user -> emails.put(user.getId(), user.getEmail()));
+            return emails;
+        });
+    }
+    
+    public Map<String, String> getUserNames(Collection<String> userIds) {
+        Map<String, String> names = new HashMap<>();
+        if (!userIds.isEmpty()) {
+            userRepository.findSummariesByIdIn(userIds).forEach(user -> names.put(user.getId(), user.getName()));
+        }
+        return names;
+    }
+    
     public User updateUser(String userId, UserUpdateRequest request) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -46,7 +89,10 @@ public class UserService {
             user.setPrivacySettings(request.getPrivacySettings());
         }
         
-        return userRepository.save(user);
+        user = userRepository.save(user);
+        emailsById.invalidate(user.getId());
+        searchIndexService.indexUser(user);
+        return user;
     }
     
     public void updateAvatar(String userId, String avatarUrl) {
@@ -58,23 +104,29 @@ public class UserService {
     }
     
     public Map<String, Object> getUserStats(String userId) {
-        User user = userRepository.findById(userId)
+        UserActivity activity = userRepository.findActivityById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
         long totalMessages = messageRepository.countBySenderId(userId);
         
         Map<String, Object> stats = new HashMap<>();
         stats.put("totalMessages", totalMessages);
-        stats.put("joinedAt", user.getJoinedAt());
-        stats.put("lastSeen", user.getLastSeen());
+        stats.put("joinedAt", activity.getJoinedAt());
+        stats.put("lastSeen", activity.getLastSeen());
         
         return stats;
     }
     
-    public List<User> searchUsers(String query) {
-        List<User> users = userRepository.findByNameContainingIgnoreCase(query);
-        users.addAll(userRepository.findByEmailContainingIgnoreCase(query));
-        return users.stream().distinct().toList();
+    public List<User> searchUsers(String query, int limit) {
+        List<String> ids = searchIndexService.searchUserIds(query, limit);
+        
+        // Keep the index ranking; findAllById returns documents in arbitrary order
+        Map<String, User> usersById = new HashMap<>();
+        userRepository.findAllById(ids).forEach(user -> usersById.put(user.getId(), user));
+        return ids.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
     
     public void updateLastSeen(String email) {
@@ -0,0 +1,173 @@
+package com.example.chatapp.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory word-prefix index used for autocomplete.
+ * Every word of an indexed field is stored under each of its prefixes (up to
+ * {@code maxPrefixLength} characters), so a lookup is a single hash probe
+ * followed by a bounded top-K selection over the candidates.
+ */
+public class PrefixIndex {
+    
+    private final int maxPrefixLength;
+    
+    // prefix -> ids of entries having a word that starts with it
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+    
+    // id -> indexed words and ranking label
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    
+    public PrefixIndex(int maxPrefixLength) {
+        this.maxPrefixLength = maxPrefixLength;
+    }
+    
+    public void put(String id, String label, String... fields) {
+        Entry entry = new Entry(normalize(label), tokenize(fields));
+        entries.compute(id, (key, previous) -> {
+            if (previous != null) {
+                unlink(id, previous);
+            }
+            link(id, entry);
+            return entry;
+        });
+    }
+    
+    public void remove(String id) {
+        entries.computeIfPresent(id, (key, previous) -> {
+            unlink(id, previous);
+            return null;
+        });
+    }
+    
+    public void clear() {
+        entries.clear();
+        postings.clear();
+    }
+    
+    public int size() {
+        return entries.size();
+    }
+    
+    /**
+     * Returns up to {@code limit} ids whose words start with every word of the
+     * query, ordered by label.
+     */
+    public List<String> search(String query, int limit) {
+        Set<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        
+        // Probe with the longest term; it has the most selective posting list
+        String probe = terms.stream().max(Comparator.comparingInt(String::length)).get();
+        Set<String> candidates = postings.get(truncate(probe));
+        if (candidates == null) {
+            return List.of();
+        }
+        
+        Comparator<Map.Entry<String, Entry>> byLabel =
+                Comparator.comparing((Map.Entry<String, Entry> e) -> e.getValue().label)
+                        .thenComparing(Map.Entry::getKey);
+        PriorityQueue<Map.Entry<String, Entry>> top = new PriorityQueue<>(limit + 1, byLabel.reversed());
+        
+        for (String id : candidates) {
+            Entry entry = entries.get(id);
+            if (entry == null || !entry.matchesAll(terms)) {
+                continue;
+            }
+            top.offer(Map.entry(id, entry));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        
+        List<Map.Entry<String, Entry>> ranked = new ArrayList<>(top);
+        ranked.sort(byLabel);
+        return ranked.stream().map(Map.Entry::getKey).toList();
+    }
+    
+    private void link(String id, Entry entry) {
+        for (String prefix : prefixes(entry.words)) {
+            postings.computeIfAbsent(prefix, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+    
+    private void unlink(String id, Entry entry) {
+        for (String prefix : prefixes(entry.words)) {
+            postings.computeIfPresent(prefix, (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+    
+    private Set<String> prefixes(Set<String> words) {
+        Set<String> prefixes = new LinkedHashSet<>();
+        for (String word : words) {
+            int end = Math.min(word.length(), maxPrefixLength);
+            for (int i = 1; i <= end; i++) {
+                prefixes.add(word.substring(0, i));
+            }
+        }
+        return prefixes;
+    }
+    
+    private String truncate(String term) {
+        return term.length() > maxPrefixLength ? term.substring(0, maxPrefixLength) : term;
+    }
+    
+    private static Set<String> tokenize(String... fields) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String field : fields) {
+            if (field == null) {
+                continue;
+            }
+            for (String word : normalize(field).split("[^\\p{L}\\p{N}]+")) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+    
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    private static final class Entry {
+        private final String label;
+        private final Set<String> words;
+        
+        private Entry(String label, Set<String> words) {
+            this.label = label;
+            this.words = Collections.unmodifiableSet(words);
+        }
+        
+        private boolean matchesAll(Set<String> terms) {
+            for (String term : terms) {
+                boolean matched = false;
+                for (String word : words) {
+                    if (word.startsWith(term)) {
+                        matched = true;
+                        break;
+                    }
+                }
+                if (!matched) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
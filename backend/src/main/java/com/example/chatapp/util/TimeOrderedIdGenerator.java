@@ -0,0 +1,68 @@
+package com.example.chatapp.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free generator of monotonic, time-ordered ids in the 24-hex-digit
+ * ObjectId format, so they are stored as ObjectIds and sort together with
+ * ids Mongo assigned before. Layout (96 bits, most significant first):
+ * epoch seconds (32), millisecond within the second (10), sequence (22),
+ * node (32).
+ *
+ * <p>The whole state is one long of (epoch millis, sequence) advanced with a
+ * CAS to {@code max(previous + 1, now)}: ids keep increasing when the clock
+ * steps back, and a sequence overflow borrows the next millisecond.
+ */
+public final class TimeOrderedIdGenerator {
+    
+    private static final int SEQUENCE_BITS = 22;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private final int node;
+    private final LongSupplier clock;
+    private final AtomicLong state = new AtomicLong();
+    
+    public TimeOrderedIdGenerator(int node) {
+        this(node, System::currentTimeMillis);
+    }
+    
+    public TimeOrderedIdGenerator(int node, LongSupplier clock) {
+        this.node = node;
+        this.clock = clock;
+    }
+    
+    public String nextId() {
+        long now = clock.getAsLong() << SEQUENCE_BITS;
+        while (true) {
+            long previous = state.get();
+            long next = Math.max(previous + 1, now);
+            if (state.compareAndSet(previous, next)) {
+                return format(next);
+            }
+        }
+    }
+    
+    // Epoch millis encoded in an id from this generator
+    public static long timestampMillis(String id) {
+        long high = Long.parseUnsignedLong(id.substring(0, 16), 16);
+        return (high >>> 32) * 1000 + ((high >>> SEQUENCE_BITS) & 0x3FF);
+    }
+    
+    private String format(long value) {
+        long millis = value >>> SEQUENCE_BITS;
+        long high = (millis / 1000) << 32 | (millis % 1000) << SEQUENCE_BITS | (value & SEQUENCE_MASK);
+        char[] chars = new char[24];
+        for (int i = 15; i >= 0; i--) {
+            chars[i] = HEX[(int) (high & 0xF)];
+            high >>>= 4;
+        }
+        long low = node & 0xFFFFFFFFL;
+        for (int i = 23; i >= 16; i--) {
+            chars[i] = HEX[(int) (low & 0xF)];
+            low >>>= 4;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.chatapp.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.AbstractSubProtocolEvent;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Admission control for STOMP CONNECT, so a reconnect storm after a restart
+ * cannot bury traffic from connected sessions. At most
+ * {@code websocket.connect.max-concurrent} CONNECTs are in flight, from
+ * arrival until CONNECTED is sent. A CONNECT that finds no free slot is not
+ * parked on its transport thread: it gets an ERROR frame right away with a
+ * {@code retry-after} hint in milliseconds, randomized over
+ * {@code retry-base-ms} plus up to {@code retry-jitter-ms} so refused clients
+ * do not come back in lockstep, and is disconnected.
+ */
+@Component
+public class ConnectAdmissionControl implements ChannelInterceptor {
+    
+    private final Semaphore slots;
+    private final long retryBaseMillis;
+    private final long retryJitterMillis;
+    
+    // Sessions holding a slot; released once, on CONNECTED or disconnect
+    private final Map<String, Boolean> admitted = new ConcurrentHashMap<>();
+    
+    private final Counter admittedCounter;
+    private final Counter rejectedCounter;
+    
+    public ConnectAdmissionControl(MeterRegistry meterRegistry,
+                                   @Value("${websocket.connect.max-concurrent:200}") int maxConcurrent,
+                                   @Value("${websocket.connect.retry-base-ms:1000}") long retryBaseMillis,
+                                   @Value("${websocket.connect.retry-jitter-ms:5000}") long retryJitterMillis) {
+        this.slots = new Semaphore(maxConcurrent);
+        this.retryBaseMillis = retryBaseMillis;
+        this.retryJitterMillis = retryJitterMillis;
+        
+        this.admittedCounter = meterRegistry.counter("stomp.connect.admission", "outcome", "admitted");
+        this.rejectedCounter = meterRegistry.counter("stomp.connect.admission", "outcome", "rejected");
+        meterRegistry.gauge("stomp.connect.in_flight", admitted, Map::size);
+    }
+    
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null
+                || !(StompCommand.CONNECT.equals(accessor.getCommand()) || StompCommand.STOMP.equals(accessor.getCommand()))
+                || accessor.getSessionId() == null) {
+            return message;
+        }
+        
+        // A repeated CONNECT on a session already holding a slot does not take another
+        if (admitted.containsKey(accessor.getSessionId())) {
+            return message;
+        }
+        if (!slots.tryAcquire()) {
+            rejectedCounter.increment();
+            throw new ConnectRejectedException("no admission slot", retryAfterMillis());
+        }
+        if (admitted.putIfAbsent(accessor.getSessionId(), Boolean.TRUE) != null) {
+            slots.release();
+            return message;
+        }
+        admittedCounter.increment();
+        return message;
+    }
+    
+    // Handshakes are refused outright while CONNECTs are already being turned away
+    public boolean isSaturated() {
+        return slots.availablePermits() == 0;
+    }
+    
+    public long retryAfterMillis() {
+        return retryBaseMillis + ThreadLocalRandom.current().nextLong(retryJitterMillis + 1);
+    }
+    
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        release(event);
+    }
+    
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        release(event);
+    }
+    
+    private void release(AbstractSubProtocolEvent event) {
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        if (sessionId != null && admitted.remove(sessionId) != null) {
+            slots.release();
+        }
+    }
+}
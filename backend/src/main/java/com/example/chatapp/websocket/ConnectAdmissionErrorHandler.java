@@ -0,0 +1,36 @@
+package com.example.chatapp.websocket;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.StompSubProtocolErrorHandler;
+
+/**
+ * Turns a CONNECT refused by {@link ConnectAdmissionControl} into an ERROR
+ * frame with a {@code retry-after} header (milliseconds). Other errors keep
+ * the default handling.
+ */
+public class ConnectAdmissionErrorHandler extends StompSubProtocolErrorHandler {
+    
+    public static final String RETRY_AFTER_HEADER = "retry-after";
+    
+    @Override
+    protected Message<byte[]> handleInternal(StompHeaderAccessor errorHeaderAccessor, byte[] errorPayload,
+                                             Throwable cause, StompHeaderAccessor clientHeaderAccessor) {
+        ConnectRejectedException rejected = rejection(cause);
+        if (rejected != null) {
+            errorHeaderAccessor.setMessage(rejected.getMessage());
+            errorHeaderAccessor.setNativeHeader(RETRY_AFTER_HEADER, String.valueOf(rejected.getRetryAfterMillis()));
+        }
+        return MessageBuilder.createMessage(errorPayload, errorHeaderAccessor.getMessageHeaders());
+    }
+    
+    private static ConnectRejectedException rejection(Throwable cause) {
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if (t instanceof ConnectRejectedException rejected) {
+                return rejected;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.chatapp.websocket;
+
+// Thrown for a CONNECT refused by admission control; becomes an ERROR frame with a retry hint
+public class ConnectRejectedException extends RuntimeException {
+    
+    private final long retryAfterMillis;
+    
+    public ConnectRejectedException(String reason, long retryAfterMillis) {
+        super("Server busy (" + reason + "), retry in " + retryAfterMillis + "ms");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+    
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.chatapp.websocket;
+
+import com.example.chatapp.service.ChatMembershipCache;
+import com.example.chatapp.service.UserService;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Authorizes SUBSCRIBE to chat and group topics and SEND to the chat
+ * handlers against {@link ChatMembershipCache}, so frames never cost a
+ * MongoDB lookup. For SEND, only the top-level {@code chatId},
+ * {@code groupId} and {@code receiverId} fields are read from the JSON
+ * payload: the sender must belong to the chat and group, and the receiver
+ * to the chat. Rejected frames are dropped and the sender is told on
+ * {@code /user/queue/errors}. Raw {@code /queue} subscriptions are refused;
+ * personal queues are reached through {@code /user/queue}. Pattern
+ * destinations such as {@code /topic/**} are refused too, since they would
+ * match chat topics without naming a chat to check. Clients may only SEND
+ * to {@code /app} handlers; a SEND straight to a broker or user destination
+ * would reach its subscribers without any check. Authorized SENDs
+ * carry their chat id in the {@link #CHAT_ID_HEADER} header, which orders
+ * them per chat on the inbound lanes of {@link OrderedLaneExecutor}.
+ */
+@Slf4j
+@Component
+public class DestinationAuthorizationInterceptor implements ChannelInterceptor {
+    
+    public static final String USER_ID_ATTRIBUTE = "chat.userId";
+    public static final String CHAT_ID_HEADER = "chat.chatId";
+    
+    private static final String ERRORS_DESTINATION = "/queue/errors";
+    private static final String CHAT_TOPIC = "/topic/chat.";
+    private static final String GROUP_TOPIC = "/topic/group.";
+    private static final String APP_PREFIX = "/app/";
+    private static final Set<String> CHAT_SENDS = Set.of("/app/chat.send", "/app/chat.typing");
+    
+    private final ChatMembershipCache membershipCache;
+    private final UserService userService;
+    private final ObjectProvider<SimpMessagingTemplate> messagingTemplate;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+    private final Counter deniedSubscribes;
+    private final Counter deniedSends;
+    
+    public DestinationAuthorizationInterceptor(ChatMembershipCache membershipCache,
+                                               UserService userService,
+                                               ObjectProvider<SimpMessagingTemplate> messagingTemplate,
+                                               MeterRegistry meterRegistry) {
+        this.membershipCache = membershipCache;
+        this.userService = userService;
+        this.messagingTemplate = messagingTemplate;
+        this.deniedSubscribes = meterRegistry.counter("stomp.inbound.unauthorized", "command", "subscribe");
+        this.deniedSends = meterRegistry.counter("stomp.inbound.unauthorized", "command", "send");
+    }
+    
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getDestination() == null) {
+            return message;
+        }
+        
+        String destination = accessor.getDestination();
+        if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            if (!maySubscribe(accessor, destination)) {
+                deniedSubscribes.increment();
+                deny(accessor.getUser(), destination);
+                return null;
+            }
+        } else if (StompCommand.SEND.equals(accessor.getCommand()) && !destination.startsWith(APP_PREFIX)) {
+            deniedSends.increment();
+            deny(accessor.getUser(), destination);
+            return null;
+        } else if (StompCommand.SEND.equals(accessor.getCommand()) && CHAT_SENDS.contains(destination)) {
+            Targets targets = targets(message.getPayload());
+            if (targets == null || !maySend(accessor, targets)) {
+                deniedSends.increment();
+                deny(accessor.getUser(), destination);
+                return null;
+            }
+            // Headers stay mutable until the channel's last interceptor
+            if (accessor.isMutable()) {
+                accessor.setHeader(CHAT_ID_HEADER, targets.chatId());
+            }
+        }
+        return message;
+    }
+    
+    private boolean maySubscribe(StompHeaderAccessor accessor, String destination) {
+        if (destination.startsWith("/queue/") || pathMatcher.isPattern(destination)) {
+            return false;
+        }
+        String chatId = topicChatId(destination);
+        return chatId == null || membershipCache.isMember(chatId, userId(accessor));
+    }
+    
+    private boolean maySend(StompHeaderAccessor accessor, Targets targets) {
+        String userId = userId(accessor);
+        return membershipCache.isMember(targets.chatId(), userId)
+                && (targets.groupId() == null || membershipCache.isMember(targets.groupId(), userId))
+                && (targets.receiverId() == null || membershipCache.isMember(targets.chatId(), targets.receiverId()));
+    }
+    
+    // "/topic/chat.{id}", "/topic/chat.{id}.typing" and "/topic/group.{id}"; null for other destinations
+    static String topicChatId(String destination) {
+        String prefix = destination.startsWith(CHAT_TOPIC) ? CHAT_TOPIC
+                : destination.startsWith(GROUP_TOPIC) ? GROUP_TOPIC
+                : null;
+        if (prefix == null) {
+            return null;
+        }
+        int end = destination.indexOf('.', prefix.length());
+        return destination.substring(prefix.length(), end < 0 ? destination.length() : end);
+    }
+    
+    // Null unless the payload is a JSON object; the handler would fail to read it anyway
+    private Targets targets(Object payload) {
+        if (!(payload instanceof byte[] json)) {
+            return null;
+        }
+        try {
+            return parseTargets(json);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    // Streams over the object, reading only the id fields and skipping nested values
+    private Targets parseTargets(byte[] json) throws IOException {
+        String chatId = null;
+        String groupId = null;
+        String receiverId = null;
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Payload is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_STRING) {
+                    switch (field) {
+                        case "chatId" -> chatId = parser.getText();
+                        case "groupId" -> groupId = parser.getText();
+                        case "receiverId" -> receiverId = parser.getText();
+                        default -> {
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new Targets(chatId, groupId, receiverId);
+    }
+    
+    // Resolved once per session; principal names are emails
+    private String userId(StompHeaderAccessor accessor) {
+        Principal user = accessor.getUser();
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (user == null || attributes == null) {
+            return null;
+        }
+        Object cached = attributes.get(USER_ID_ATTRIBUTE);
+        if (cached instanceof String userId) {
+            return userId;
+        }
+        try {
+            String userId = userService.getUserSummary(user.getName()).getId();
+            attributes.put(USER_ID_ATTRIBUTE, userId);
+            return userId;
+        } catch (RuntimeException e) {
+            // Unknown user; every membership check fails
+            return null;
+        }
+    }
+    
+    private record Targets(String chatId, String groupId, String receiverId) {
+    }
+    
+    private void deny(Principal user, String destination) {
+        if (user == null) {
+            return;
+        }
+        try {
+            messagingTemplate.getObject().convertAndSendToUser(
+                    user.getName(),
+                    ERRORS_DESTINATION,
+                    Map.of("error", "Not a member of this chat", "destination", destination)
+            );
+        } catch (Exception e) {
+            log.debug("Failed to report denied frame to {}", user.getName(), e);
+        }
+    }
+}
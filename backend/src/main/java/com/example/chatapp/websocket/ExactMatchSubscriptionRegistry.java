@@ -0,0 +1,128 @@
+package com.example.chatapp.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.broker.AbstractSubscriptionRegistry;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.PathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Subscription registry for the simple broker, indexed by exact destination.
+ * Every destination this app subscribes to is a literal (/topic/chat.{id},
+ * /topic/group.{id}, resolved /queue/...-user{session}), so a lookup is one
+ * hash probe returning a read-only view of that destination's subscribers,
+ * and SUBSCRIBE/UNSUBSCRIBE only lock their destination's hash bin.
+ * Destinations are dropped with their last subscriber. Ant-style patterns are
+ * never registered, so a stray pattern subscription matches nothing; STOMP
+ * selector headers are ignored.
+ */
+@Slf4j
+public class ExactMatchSubscriptionRegistry extends AbstractSubscriptionRegistry {
+    
+    private static final MultiValueMap<String, String> NONE =
+            CollectionUtils.unmodifiableMultiValueMap(new LinkedMultiValueMap<>());
+    
+    private final ConcurrentMap<String, Subscribers> destinations = new ConcurrentHashMap<>();
+    // session id -> subscription id -> destination, to resolve UNSUBSCRIBE and disconnects
+    private final ConcurrentMap<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+    
+    @Override
+    protected void addSubscriptionInternal(String sessionId, String subscriptionId, String destination,
+                                           Message<?> message) {
+        if (pathMatcher.isPattern(destination)) {
+            log.debug("Ignoring pattern subscription {} from session {}", destination, sessionId);
+            return;
+        }
+        Map<String, String> subscriptions = sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>(8));
+        // A repeated subscription id keeps its first destination, as in the default registry
+        if (subscriptions.putIfAbsent(subscriptionId, destination) != null) {
+            return;
+        }
+        destinations.compute(destination, (key, subscribers) -> {
+            Subscribers target = subscribers != null ? subscribers : new Subscribers();
+            target.add(sessionId, subscriptionId);
+            return target;
+        });
+    }
+    
+    @Override
+    protected void removeSubscriptionInternal(String sessionId, String subscriptionId, Message<?> message) {
+        Map<String, String> subscriptions = sessions.get(sessionId);
+        String destination = subscriptions != null ? subscriptions.remove(subscriptionId) : null;
+        if (destination != null) {
+            removeSubscriber(destination, sessionId, subscriptionId);
+        }
+    }
+    
+    @Override
+    public void unregisterAllSubscriptions(String sessionId) {
+        Map<String, String> subscriptions = sessions.remove(sessionId);
+        if (subscriptions != null) {
+            subscriptions.forEach((subscriptionId, destination) ->
+                    removeSubscriber(destination, sessionId, subscriptionId));
+        }
+    }
+    
+    @Override
+    protected MultiValueMap<String, String> findSubscriptionsInternal(String destination, Message<?> message) {
+        Subscribers subscribers = destinations.get(destination);
+        return subscribers != null ? subscribers.view() : NONE;
+    }
+    
+    public int getDestinationCount() {
+        return destinations.size();
+    }
+    
+    public int getSessionCount() {
+        return sessions.size();
+    }
+    
+    private void removeSubscriber(String destination, String sessionId, String subscriptionId) {
+        destinations.computeIfPresent(destination, (key, subscribers) ->
+                subscribers.remove(sessionId, subscriptionId) ? null : subscribers);
+    }
+    
+    // Mutated only inside compute on its destination's key, read lock-free by lookups
+    private static final class Subscribers {
+        
+        private final ConcurrentMap<String, List<String>> bySession = new ConcurrentHashMap<>(4);
+        
+        MultiValueMap<String, String> view() {
+            return CollectionUtils.unmodifiableMultiValueMap(CollectionUtils.toMultiValueMap(bySession));
+        }
+        
+        void add(String sessionId, String subscriptionId) {
+            bySession.merge(sessionId, List.of(subscriptionId), Subscribers::concat);
+        }
+        
+        // True once the destination has no subscribers left
+        boolean remove(String sessionId, String subscriptionId) {
+            bySession.computeIfPresent(sessionId, (id, subscriptionIds) -> {
+                if (subscriptionIds.size() == 1) {
+                    return subscriptionIds.get(0).equals(subscriptionId) ? null : subscriptionIds;
+                }
+                List<String> remaining = new ArrayList<>(subscriptionIds);
+                remaining.remove(subscriptionId);
+                return remaining.isEmpty() ? null : List.copyOf(remaining);
+            });
+            return bySession.isEmpty();
+        }
+        
+        private static List<String> concat(List<String> existing, List<String> added) {
+            List<String> merged = new ArrayList<>(existing.size() + added.size());
+            merged.addAll(existing);
+            merged.addAll(added);
+            return List.copyOf(merged);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.chatapp.websocket;
+
+import com.example.chatapp.util.TokenBucket;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token-bucket limits on inbound SEND frames, applied per session and per
+ * user for each configured application destination. Frames over the limit
+ * are dropped before they reach a handler and the sender is told on
+ * {@code /user/queue/errors}.
+ */
+@Slf4j
+@Component
+public class InboundRateLimitInterceptor implements ChannelInterceptor {
+    
+    private static final String ERRORS_DESTINATION = "/queue/errors";
+    
+    private final ObjectProvider<SimpMessagingTemplate> messagingTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Map<String, Limit> sessionLimits;
+    private final Map<String, Limit> userLimits;
+    
+    // sessionId -> destination -> bucket; dropped on DISCONNECT
+    private final Map<String, Map<String, TokenBucket>> sessionBuckets = new ConcurrentHashMap<>();
+    
+    // user + destination -> bucket; idle buckets are swept periodically
+    private final Map<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    
+    // one violation report per session per second is enough for the client
+    private final Map<String, TokenBucket> reportBuckets = new ConcurrentHashMap<>();
+    
+    public InboundRateLimitInterceptor(ObjectProvider<SimpMessagingTemplate> messagingTemplate,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${websocket.rate-limit.enabled:true}") boolean enabled,
+                                       @Value("${websocket.rate-limit.session-limits:}") String sessionLimits,
+                                       @Value("${websocket.rate-limit.user-limits:}") String userLimits) {
+        this.messagingTemplate = messagingTemplate;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.sessionLimits = parseLimits(sessionLimits);
+        this.userLimits = parseLimits(userLimits);
+    }
+    
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (!enabled || accessor == null) {
+            return message;
+        }
+        
+        if (StompCommand.DISCONNECT.equals(accessor.getCommand())) {
+            sessionBuckets.remove(accessor.getSessionId());
+            reportBuckets.remove(accessor.getSessionId());
+            return message;
+        }
+        
+        if (!StompCommand.SEND.equals(accessor.getCommand())) {
+            return message;
+        }
+        
+        String destination = accessor.getDestination();
+        String sessionId = accessor.getSessionId();
+        Principal user = accessor.getUser();
+        if (destination == null || sessionId == null) {
+            return message;
+        }
+        
+        Limit sessionLimit = sessionLimits.get(destination);
+        if (sessionLimit != null) {
+            TokenBucket bucket = sessionBuckets
+                    .computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(destination, dest -> sessionLimit.newBucket());
+            if (!bucket.tryAcquire()) {
+                reject(destination, "session", sessionId, user);
+                return null;
+            }
+        }
+        
+        Limit userLimit = userLimits.get(destination);
+        if (userLimit != null && user != null) {
+            TokenBucket bucket = userBuckets.computeIfAbsent(user.getName() + "|" + destination,
+                    key -> userLimit.newBucket());
+            if (!bucket.tryAcquire()) {
+                reject(destination, "user", sessionId, user);
+                return null;
+            }
+        }
+        
+        return message;
+    }
+    
+    private void reject(String destination, String scope, String sessionId, Principal user) {
+        meterRegistry.counter("stomp.inbound.rate_limited", "destination", destination, "scope", scope).increment();
+        
+        if (user == null) {
+            return;
+        }
+        TokenBucket reportBucket = reportBuckets.computeIfAbsent(sessionId, id -> new TokenBucket(1, 1));
+        if (!reportBucket.tryAcquire()) {
+            return;
+        }
+        
+        try {
+            messagingTemplate.getObject().convertAndSendToUser(
+                    user.getName(),
+                    ERRORS_DESTINATION,
+                    Map.of("error", "Rate limit exceeded", "destination", destination, "scope", scope)
+            );
+        } catch (Exception e) {
+            log.debug("Failed to report rate limit violation to {}", user.getName(), e);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${websocket.rate-limit.sweep-interval-ms:60000}")
+    public void sweepIdleBuckets() {
+        long now = System.nanoTime();
+        userBuckets.values().removeIf(bucket -> bucket.isIdle(now));
+    }
+    
+    // Format: "/app/chat.send:10:20,/app/chat.typing:5:10" (destination:permitsPerSecond:burst)
+    private static Map<String, Limit> parseLimits(String spec) {
+        Map<String, Limit> limits = new HashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return limits;
+        }
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid rate limit entry: " + entry);
+            }
+            limits.put(parts[0], new Limit(Double.parseDouble(parts[1]), Integer.parseInt(parts[2])));
+        }
+        return limits;
+    }
+    
+    private record Limit(double permitsPerSecond, int burst) {
+        TokenBucket newBucket() {
+            return new TokenBucket(permitsPerSecond, burst);
+        }
+    }
+}
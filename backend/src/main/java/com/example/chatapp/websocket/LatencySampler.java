@@ -0,0 +1,139 @@
+package com.example.chatapp.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency stamping for a sample of chat.send frames. A sampled frame is
+ * stamped when it is decoded on the WebSocket thread; the controller adds
+ * stamps after persistence and at broker enqueue, and the resulting messages
+ * carry them to subscribers as the optional STOMP headers {@code x-recv},
+ * {@code x-persisted} and {@code x-enqueued} (epoch microseconds). Clients may
+ * echo {@code x-enqueued} with their receive time to {@code /app/chat.latency}.
+ *
+ * <p>Stages recorded in {@code chat.latency.stage}: inbound-queue (decode to
+ * handler), server (decode to broker enqueue), dispatch (enqueue to outbound
+ * handling for each subscriber) and client (enqueue to client receipt, subject
+ * to clock skew).
+ */
+@Component
+public class LatencySampler implements ExecutorChannelInterceptor {
+    
+    public static final String STAMP_HEADER = "chat.latency.stamp";
+    public static final String RECEIVED_HEADER = "x-recv";
+    public static final String PERSISTED_HEADER = "x-persisted";
+    public static final String ENQUEUED_HEADER = "x-enqueued";
+    
+    private static final String SEND_DESTINATION = "/app/chat.send";
+    
+    // Frame receipt time, in both clocks: nanoTime for durations, epoch micros for headers
+    public record Stamp(long receivedNanos, long receivedMicros) {
+    }
+    
+    private final MeterRegistry meterRegistry;
+    private final double sampleRate;
+    private final Counter sampled;
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    
+    public LatencySampler(MeterRegistry meterRegistry,
+                          @Value("${websocket.latency.sample-rate:0.01}") double sampleRate) {
+        this.meterRegistry = meterRegistry;
+        this.sampleRate = sampleRate;
+        this.sampled = Counter.builder("chat.latency.sampled").register(meterRegistry);
+    }
+    
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return message;
+        }
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor != null && StompCommand.SEND.equals(accessor.getCommand())
+                && SEND_DESTINATION.equals(accessor.getDestination())) {
+            accessor.setHeader(STAMP_HEADER, new Stamp(System.nanoTime(), epochMicros()));
+            sampled.increment();
+        }
+        return message;
+    }
+    
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        // Outbound: only sampled messages carry the enqueue stamp
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+            String enqueued = SimpMessageHeaderAccessor.getFirstNativeHeader(ENQUEUED_HEADER, message.getHeaders());
+            if (enqueued != null) {
+                try {
+                    recordMicros("dispatch", epochMicros() - Long.parseLong(enqueued));
+                } catch (NumberFormatException e) {
+                    // Not one of ours; clients can SEND to broker destinations with arbitrary headers
+                }
+            }
+        }
+        return message;
+    }
+    
+    public void handlerStarted(Stamp stamp) {
+        recordNanos("inbound-queue", System.nanoTime() - stamp.receivedNanos());
+    }
+    
+    // Native headers for the outgoing messages of a sampled frame
+    public Map<String, Object> outboundHeaders(Stamp stamp, long persistedMicros) {
+        long enqueuedMicros = epochMicros();
+        recordNanos("server", System.nanoTime() - stamp.receivedNanos());
+        
+        Map<String, Object> headers = new HashMap<>();
+        headers.put(RECEIVED_HEADER, stamp.receivedMicros());
+        headers.put(PERSISTED_HEADER, persistedMicros);
+        headers.put(ENQUEUED_HEADER, enqueuedMicros);
+        return headers;
+    }
+    
+    public void clientReceived(long enqueuedMicros, long receivedMicros) {
+        // Client and server clocks differ; negative values are skew, not latency
+        if (receivedMicros >= enqueuedMicros) {
+            recordMicros("client", receivedMicros - enqueuedMicros);
+        }
+    }
+    
+    public static long epochMicros() {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+    }
+    
+    private void recordNanos(String stage, long nanos) {
+        timer(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    private void recordMicros(String stage, long micros) {
+        if (micros >= 0) {
+            timer(stage).record(micros, TimeUnit.MICROSECONDS);
+        }
+    }
+    
+    private Timer timer(String stage) {
+        return stageTimers.computeIfAbsent(stage, name -> Timer.builder("chat.latency.stage")
+                .description("Latency of one stage of a sampled chat message")
+                .tag("stage", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+}
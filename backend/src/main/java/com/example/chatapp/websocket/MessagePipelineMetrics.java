@@ -0,0 +1,55 @@
+package com.example.chatapp.websocket;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Timers for the STOMP send path: one end-to-end timer per outcome, one per
+ * pipeline stage (auth, persist, fanout) and one per delivery target of the
+ * individual convertAndSend calls. All publish percentile histograms so
+ * quantiles can be aggregated across instances at query time.
+ */
+@Component
+public class MessagePipelineMetrics {
+    
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> deliveryTimers = new ConcurrentHashMap<>();
+    
+    public MessagePipelineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+    
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+    
+    public void finish(Timer.Sample sample, String outcome) {
+        sample.stop(Timer.builder("chat.send")
+                .description("End-to-end handling of one chat.send frame")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+    
+    public <T> T stage(String stage, Supplier<T> work) {
+        return stageTimers.computeIfAbsent(stage, name -> Timer.builder("chat.send.stage")
+                .description("One stage of chat.send handling")
+                .tag("stage", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry)).record(work);
+    }
+    
+    public void deliver(String target, Runnable send) {
+        deliveryTimers.computeIfAbsent(target, name -> Timer.builder("chat.send.delivery")
+                .description("One convertAndSend call of the fan-out, by target kind")
+                .tag("target", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry)).record(send);
+    }
+}
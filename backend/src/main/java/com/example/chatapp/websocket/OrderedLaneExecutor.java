@@ -0,0 +1,138 @@
+package com.example.chatapp.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor for {@code clientInboundChannel} that keeps frames of one chat in
+ * order while different chats run in parallel. Frames are hashed onto a
+ * fixed set of lanes by the chat id that {@link DestinationAuthorizationInterceptor}
+ * stamped on them, or by session id for frames without one. Each lane runs its
+ * frames one at a time on the shared pool, so a chat's messages are persisted
+ * and broadcast in arrival order.
+ *
+ * <p>A busy lane hands its thread back after {@code batchSize} frames and
+ * queues itself again behind the other lanes, so a hot chat cannot starve
+ * the chats that share the pool. Lanes far outnumber threads to keep chats
+ * from sharing a lane with a hot one.
+ *
+ * <p>Other work that needs the same per-key ordering passes its key to
+ * {@link #execute(String, Runnable)}.
+ */
+@Slf4j
+public class OrderedLaneExecutor extends ThreadPoolTaskExecutor {
+    
+    private final Lane[] lanes;
+    private final int batchSize;
+    private final LongAdder yields = new LongAdder();
+    
+    public OrderedLaneExecutor(int laneCount, int batchSize) {
+        // A power of two, so the lane is picked with a mask
+        int size = Integer.highestOneBit(Math.max(1, laneCount - 1)) << 1;
+        this.lanes = new Lane[size];
+        for (int i = 0; i < size; i++) {
+            lanes[i] = new Lane();
+        }
+        this.batchSize = Math.max(1, batchSize);
+    }
+    
+    @Override
+    public void execute(Runnable task) {
+        String key = task instanceof MessageHandlingRunnable handling ? laneKey(handling.getMessage()) : null;
+        if (key == null) {
+            super.execute(task);
+            return;
+        }
+        execute(key, task);
+    }
+    
+    // Tasks with equal keys run one at a time, in submission order
+    public void execute(String key, Runnable task) {
+        int hash = key.hashCode();
+        lanes[(hash ^ (hash >>> 16)) & (lanes.length - 1)].submit(task);
+    }
+    
+    private static String laneKey(Message<?> message) {
+        Object chatId = message.getHeaders().get(DestinationAuthorizationInterceptor.CHAT_ID_HEADER);
+        return chatId instanceof String id ? id : SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+    }
+    
+    public int getLaneCount() {
+        return lanes.length;
+    }
+    
+    // Frames waiting or running across all lanes
+    public int getQueuedFrames() {
+        int queued = 0;
+        for (Lane lane : lanes) {
+            queued += lane.depth.get();
+        }
+        return queued;
+    }
+    
+    public int getMaxLaneDepth() {
+        int max = 0;
+        for (Lane lane : lanes) {
+            max = Math.max(max, lane.depth.get());
+        }
+        return max;
+    }
+    
+    public int getBusyLanes() {
+        int busy = 0;
+        for (Lane lane : lanes) {
+            if (lane.depth.get() > 0) {
+                busy++;
+            }
+        }
+        return busy;
+    }
+    
+    public long getYields() {
+        return yields.sum();
+    }
+    
+    private final class Lane implements Runnable {
+        
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        // Queued plus running; the submit that raises it from zero schedules the lane
+        private final AtomicInteger depth = new AtomicInteger();
+        
+        void submit(Runnable task) {
+            tasks.add(task);
+            if (depth.getAndIncrement() == 0) {
+                OrderedLaneExecutor.super.execute(this);
+            }
+        }
+        
+        @Override
+        public void run() {
+            int ran = 0;
+            int remaining;
+            do {
+                try {
+                    tasks.poll().run();
+                } catch (RuntimeException e) {
+                    // A failed task must not stall the ones queued behind it
+                    log.warn("Lane task failed", e);
+                }
+                ran++;
+                remaining = depth.decrementAndGet();
+            } while (remaining > 0 && ran < batchSize);
+            
+            // Frames left means this run still owns the lane; a submit only schedules it from zero
+            if (remaining > 0) {
+                yields.increment();
+                OrderedLaneExecutor.super.execute(this);
+            }
+        }
+    }
+}
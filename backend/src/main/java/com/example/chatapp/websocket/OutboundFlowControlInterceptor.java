@@ -0,0 +1,185 @@
+package com.example.chatapp.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Applies per-session backlog budgets on clientOutboundChannel.
+ * Typing and presence frames are coalesced to the latest value per
+ * subscription and, like read receipts, dropped once a session falls behind.
+ * Chat messages are never dropped; a session whose backlog reaches
+ * {@code websocket.outbound.max-backlog} is closed with {@link #RESYNC} so the
+ * client reconnects and resyncs from history.
+ */
+@Component
+public class OutboundFlowControlInterceptor implements ExecutorChannelInterceptor {
+    
+    public static final CloseStatus RESYNC = new CloseStatus(4001, "Slow consumer, resync required");
+    
+    enum EventClass {
+        MESSAGE, RECEIPT, TYPING, PRESENCE;
+        
+        boolean droppable() {
+            return this != MESSAGE;
+        }
+        
+        boolean coalescable() {
+            return this == TYPING || this == PRESENCE;
+        }
+    }
+    
+    private final WebSocketSessionTracker sessionTracker;
+    private final int droppableBacklog;
+    private final int maxBacklog;
+    
+    private final DistributionSummary backlogSummary;
+    private final Map<EventClass, Counter> droppedCounters;
+    private final Map<EventClass, Counter> coalescedCounters;
+    private final Counter closedCounter;
+    
+    public OutboundFlowControlInterceptor(WebSocketSessionTracker sessionTracker,
+                                          MeterRegistry meterRegistry,
+                                          @Value("${websocket.outbound.droppable-backlog:64}") int droppableBacklog,
+                                          @Value("${websocket.outbound.max-backlog:1000}") int maxBacklog) {
+        this.sessionTracker = sessionTracker;
+        this.droppableBacklog = droppableBacklog;
+        this.maxBacklog = maxBacklog;
+        
+        this.backlogSummary = DistributionSummary.builder("stomp.outbound.session.backlog")
+                .description("Pending outbound frames of a session when a new frame is queued")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.droppedCounters = countersByClass(meterRegistry, "stomp.outbound.dropped");
+        this.coalescedCounters = countersByClass(meterRegistry, "stomp.outbound.coalesced");
+        this.closedCounter = Counter.builder("stomp.outbound.slow_consumer.closed").register(meterRegistry);
+        Gauge.builder("stomp.outbound.backlog.max", sessionTracker,
+                        tracker -> tracker.all().stream().mapToInt(s -> s.getBacklog().get()).max().orElse(0))
+                .register(meterRegistry);
+        Gauge.builder("stomp.outbound.backlog.total", sessionTracker,
+                        tracker -> tracker.all().stream().mapToInt(s -> s.getBacklog().get()).sum())
+                .register(meterRegistry);
+    }
+    
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        WebSocketSessionTracker.TrackedSession session =
+                sessionTracker.get(SimpMessageHeaderAccessor.getSessionId(headers));
+        if (session == null) {
+            return message;
+        }
+        
+        int pending = session.getBacklog().get();
+        if (SimpMessageHeaderAccessor.getMessageType(headers) == SimpMessageType.MESSAGE) {
+            EventClass eventClass = classify(SimpMessageHeaderAccessor.getDestination(headers));
+            
+            String key = eventClass.coalescable() ? coalescingKey(headers) : null;
+            if (key != null && coalesce(session, key, message)) {
+                coalescedCounters.get(eventClass).increment();
+                return null;
+            }
+            if (eventClass.droppable() && pending >= droppableBacklog) {
+                if (key != null) {
+                    session.getCoalesced().remove(key, message);
+                }
+                droppedCounters.get(eventClass).increment();
+                return null;
+            }
+            if (!eventClass.droppable() && pending >= maxBacklog) {
+                closedCounter.increment();
+                sessionTracker.close(session.getId(), RESYNC);
+                return null;
+            }
+        }
+        
+        backlogSummary.record(session.getBacklog().incrementAndGet());
+        return message;
+    }
+    
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (!sent || ex != null) {
+            WebSocketSessionTracker.TrackedSession session =
+                    sessionTracker.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+            if (session != null) {
+                session.getBacklog().updateAndGet(pending -> pending > 0 ? pending - 1 : 0);
+            }
+        }
+    }
+    
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        MessageHeaders headers = message.getHeaders();
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || !classify(SimpMessageHeaderAccessor.getDestination(headers)).coalescable()) {
+            return message;
+        }
+        WebSocketSessionTracker.TrackedSession session =
+                sessionTracker.get(SimpMessageHeaderAccessor.getSessionId(headers));
+        if (session == null) {
+            return message;
+        }
+        // Deliver the newest value that arrived while this frame was queued
+        Message<?> latest = session.getCoalesced().remove(coalescingKey(headers));
+        return latest != null ? latest : message;
+    }
+    
+    // Returns true when an older frame for the same key is still queued and now carries this one
+    private boolean coalesce(WebSocketSessionTracker.TrackedSession session, String key, Message<?> message) {
+        Map<String, Message<?>> slots = session.getCoalesced();
+        while (true) {
+            Message<?> queued = slots.putIfAbsent(key, message);
+            if (queued == null) {
+                return false;
+            }
+            if (slots.replace(key, queued, message)) {
+                return true;
+            }
+        }
+    }
+    
+    private static String coalescingKey(MessageHeaders headers) {
+        return SimpMessageHeaderAccessor.getDestination(headers) + "|" + SimpMessageHeaderAccessor.getSubscriptionId(headers);
+    }
+    
+    static EventClass classify(String destination) {
+        if (destination == null) {
+            return EventClass.MESSAGE;
+        }
+        if (destination.endsWith(".typing")) {
+            return EventClass.TYPING;
+        }
+        if (destination.startsWith("/topic/presence")) {
+            return EventClass.PRESENCE;
+        }
+        if (destination.contains("/queue/status")) {
+            return EventClass.RECEIPT;
+        }
+        return EventClass.MESSAGE;
+    }
+    
+    private static Map<EventClass, Counter> countersByClass(MeterRegistry meterRegistry, String name) {
+        Map<EventClass, Counter> counters = new EnumMap<>(EventClass.class);
+        for (EventClass eventClass : EventClass.values()) {
+            counters.put(eventClass, Counter.builder(name)
+                    .tag("class", eventClass.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        return counters;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.chatapp.websocket;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-connection payload codec selection. A client on the raw WebSocket
+ * endpoint may send {@code accept-codec: cbor} on CONNECT; its MESSAGE frames
+ * are then transcoded from JSON to CBOR and sent as binary frames with a
+ * {@code codec: cbor} header. SockJS sessions and clients that do not ask
+ * keep receiving JSON.
+ *
+ * <p>Registered on both client channels: CONNECT/DISCONNECT are seen inbound,
+ * transcoding happens outbound on the executor thread. Broker fan-out shares
+ * one payload array between subscribers, so transcoded payloads are cached by
+ * identity and each broadcast is encoded at most once per codec.
+ */
+@Slf4j
+@Component
+public class PayloadCodecInterceptor implements ExecutorChannelInterceptor {
+    
+    public static final String ACCEPT_CODEC_HEADER = "accept-codec";
+    public static final String CODEC_HEADER = "codec";
+    
+    enum Codec {
+        JSON, CBOR
+    }
+    
+    private final Map<String, Codec> sessionCodecs = new ConcurrentHashMap<>();
+    private final Map<byte[], byte[]> cborCache = Collections.synchronizedMap(new WeakHashMap<>());
+    
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final CBORFactory cborFactory = new CBORFactory();
+    
+    private final Timer cborEncodeTimer;
+    private final DistributionSummary cborEncodedBytes;
+    private final DistributionSummary jsonWireBytes;
+    private final DistributionSummary cborWireBytes;
+    
+    public PayloadCodecInterceptor(MeterRegistry meterRegistry) {
+        this.cborEncodeTimer = encodeTimer(meterRegistry, "cbor");
+        this.cborEncodedBytes = encodedBytes(meterRegistry, "cbor");
+        this.jsonWireBytes = wireBytes(meterRegistry, "json");
+        this.cborWireBytes = wireBytes(meterRegistry, "cbor");
+    }
+    
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+        
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            String accepted = accessor.getFirstNativeHeader(ACCEPT_CODEC_HEADER);
+            Map<String, Object> attributes = accessor.getSessionAttributes();
+            boolean nativeTransport = attributes != null
+                    && Boolean.TRUE.equals(attributes.get(TransportHandshakeInterceptor.NATIVE_TRANSPORT_ATTRIBUTE));
+            if (nativeTransport && accepted != null && accepted.toLowerCase().contains("cbor")) {
+                sessionCodecs.put(accessor.getSessionId(), Codec.CBOR);
+            }
+        } else if (StompCommand.DISCONNECT.equals(accessor.getCommand())) {
+            sessionCodecs.remove(accessor.getSessionId());
+        }
+        return message;
+    }
+    
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+        
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null || sessionCodecs.get(sessionId) != Codec.CBOR) {
+            jsonWireBytes.record(payload.length);
+            return message;
+        }
+        
+        byte[] cbor = cborCache.get(payload);
+        if (cbor == null) {
+            try {
+                cbor = transcode(payload);
+            } catch (IOException e) {
+                // Not JSON (or not valid JSON); deliver it unchanged
+                log.debug("Could not transcode payload for session {}", sessionId, e);
+                jsonWireBytes.record(payload.length);
+                return message;
+            }
+            cborCache.put(payload, cbor);
+        }
+        cborWireBytes.record(cbor.length);
+        
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setNativeHeader(CODEC_HEADER, "cbor");
+        return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+    }
+    
+    private byte[] transcode(byte[] json) throws IOException {
+        long start = System.nanoTime();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = jsonFactory.createParser(json);
+             JsonGenerator generator = cborFactory.createGenerator(out)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+        byte[] cbor = out.toByteArray();
+        cborEncodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        cborEncodedBytes.record(cbor.length);
+        return cbor;
+    }
+    
+    static Timer encodeTimer(MeterRegistry meterRegistry, String codec) {
+        return Timer.builder("stomp.outbound.encode")
+                .description("Time to encode one outbound payload")
+                .tag("codec", codec)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+    
+    static DistributionSummary encodedBytes(MeterRegistry meterRegistry, String codec) {
+        return DistributionSummary.builder("stomp.outbound.encoded.bytes")
+                .description("Size of one encoded outbound payload")
+                .baseUnit("bytes")
+                .tag("codec", codec)
+                .register(meterRegistry);
+    }
+    
+    static DistributionSummary wireBytes(MeterRegistry meterRegistry, String codec) {
+        return DistributionSummary.builder("stomp.outbound.wire.bytes")
+                .description("Payload bytes delivered per session frame, before permessage-deflate")
+                .baseUnit("bytes")
+                .tag("codec", codec)
+                .register(meterRegistry);
+    }
+}
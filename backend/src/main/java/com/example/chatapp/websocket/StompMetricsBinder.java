@@ -0,0 +1,113 @@
+package com.example.chatapp.websocket;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges for the STOMP runtime: queue depth and active threads of the
+ * inbound, outbound and broker channel executors, open WebSocket sessions,
+ * connected users, subscriptions, broker destinations and the inbound
+ * ordered lanes. Values are read when scraped.
+ */
+@Component
+public class StompMetricsBinder implements MeterBinder {
+    
+    private final TaskExecutor inboundExecutor;
+    private final TaskExecutor outboundExecutor;
+    private final TaskExecutor brokerExecutor;
+    private final SimpUserRegistry userRegistry;
+    private final WebSocketSessionTracker sessionTracker;
+    private final AbstractBrokerMessageHandler broker;
+    
+    public StompMetricsBinder(@Qualifier("clientInboundChannelExecutor") TaskExecutor inboundExecutor,
+                              @Qualifier("clientOutboundChannelExecutor") TaskExecutor outboundExecutor,
+                              @Qualifier("brokerChannelExecutor") TaskExecutor brokerExecutor,
+                              SimpUserRegistry userRegistry,
+                              WebSocketSessionTracker sessionTracker,
+                              @Qualifier("simpleBrokerMessageHandler") AbstractBrokerMessageHandler broker) {
+        this.inboundExecutor = inboundExecutor;
+        this.outboundExecutor = outboundExecutor;
+        this.brokerExecutor = brokerExecutor;
+        this.userRegistry = userRegistry;
+        this.sessionTracker = sessionTracker;
+        this.broker = broker;
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindExecutor(registry, "inbound", inboundExecutor);
+        bindExecutor(registry, "outbound", outboundExecutor);
+        bindExecutor(registry, "broker", brokerExecutor);
+        if (inboundExecutor instanceof OrderedLaneExecutor lanes) {
+            bindLanes(registry, lanes);
+        }
+        
+        Gauge.builder("stomp.sessions.active", sessionTracker, tracker -> tracker.all().size())
+                .description("Open WebSocket sessions")
+                .register(registry);
+        Gauge.builder("stomp.users.connected", userRegistry, SimpUserRegistry::getUserCount)
+                .description("Users with at least one STOMP session")
+                .register(registry);
+        Gauge.builder("stomp.subscriptions.active", userRegistry, StompMetricsBinder::countSubscriptions)
+                .description("Subscriptions across all STOMP sessions")
+                .register(registry);
+        if (broker instanceof SimpleBrokerMessageHandler simpleBroker
+                && simpleBroker.getSubscriptionRegistry() instanceof ExactMatchSubscriptionRegistry subscriptions) {
+            Gauge.builder("stomp.broker.destinations", subscriptions, ExactMatchSubscriptionRegistry::getDestinationCount)
+                    .description("Destinations with at least one subscriber in the simple broker")
+                    .register(registry);
+        }
+    }
+    
+    private static void bindExecutor(MeterRegistry registry, String channel, TaskExecutor executor) {
+        // The broker channel runs synchronously unless an executor was configured for it
+        if (!(executor instanceof ThreadPoolTaskExecutor pool)) {
+            return;
+        }
+        Gauge.builder("stomp.channel.queue.depth", pool, p -> p.getThreadPoolExecutor().getQueue().size())
+                .description("Messages waiting for a channel executor thread")
+                .tag("channel", channel)
+                .register(registry);
+        Gauge.builder("stomp.channel.active", pool, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Channel executor threads currently handling a message")
+                .tag("channel", channel)
+                .register(registry);
+    }
+    
+    private static void bindLanes(MeterRegistry registry, OrderedLaneExecutor lanes) {
+        Gauge.builder("stomp.inbound.lanes.queued", lanes, OrderedLaneExecutor::getQueuedFrames)
+                .description("Inbound frames waiting or running across all ordered lanes")
+                .register(registry);
+        Gauge.builder("stomp.inbound.lanes.max.depth", lanes, OrderedLaneExecutor::getMaxLaneDepth)
+                .description("Frames in the deepest lane; far above the mean marks a hot chat")
+                .register(registry);
+        Gauge.builder("stomp.inbound.lanes.busy", lanes, OrderedLaneExecutor::getBusyLanes)
+                .description("Lanes with frames waiting or running")
+                .tag("lanes", String.valueOf(lanes.getLaneCount()))
+                .register(registry);
+        FunctionCounter.builder("stomp.inbound.lanes.yields", lanes, OrderedLaneExecutor::getYields)
+                .description("Times a busy lane gave its thread back to let other lanes run")
+                .register(registry);
+    }
+    
+    private static int countSubscriptions(SimpUserRegistry userRegistry) {
+        int count = 0;
+        for (SimpUser user : userRegistry.getUsers()) {
+            for (SimpSession session : user.getSessions()) {
+                count += session.getSubscriptions().size();
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.chatapp.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.DefaultContentTypeResolver;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The STOMP JSON converter, sharing the application's ObjectMapper and
+ * recording encode time and encoded size for the json codec.
+ */
+public class TimedJsonMessageConverter extends MappingJackson2MessageConverter {
+    
+    private final Timer encodeTimer;
+    private final DistributionSummary encodedBytes;
+    
+    public TimedJsonMessageConverter(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        super(objectMapper);
+        DefaultContentTypeResolver resolver = new DefaultContentTypeResolver();
+        resolver.setDefaultMimeType(MimeTypeUtils.APPLICATION_JSON);
+        setContentTypeResolver(resolver);
+        
+        this.encodeTimer = PayloadCodecInterceptor.encodeTimer(meterRegistry, "json");
+        this.encodedBytes = PayloadCodecInterceptor.encodedBytes(meterRegistry, "json");
+    }
+    
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        long start = System.nanoTime();
+        Object converted = super.convertToInternal(payload, headers, conversionHint);
+        encodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (converted instanceof byte[] bytes) {
+            encodedBytes.record(bytes.length);
+        }
+        return converted;
+    }
+}
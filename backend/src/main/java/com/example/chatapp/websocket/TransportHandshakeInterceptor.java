@@ -0,0 +1,65 @@
+package com.example.chatapp.websocket;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Marks sessions opened on the raw WebSocket endpoint, which are the only
+ * ones that can receive binary frames, and counts handshakes that offered
+ * permessage-deflate. Tomcat negotiates that extension itself for every
+ * client that offers it, on both the raw and the SockJS endpoint. While
+ * CONNECT admission is saturated, handshakes are refused with 503 and a
+ * jittered Retry-After (seconds) before any session is set up.
+ */
+public class TransportHandshakeInterceptor implements HandshakeInterceptor {
+    
+    public static final String NATIVE_TRANSPORT_ATTRIBUTE = "chat.nativeTransport";
+    
+    private static final String EXTENSIONS_HEADER = "Sec-WebSocket-Extensions";
+    private static final String DEFLATE = "permessage-deflate";
+    
+    private final boolean nativeTransport;
+    private final ConnectAdmissionControl admissionControl;
+    private final MeterRegistry meterRegistry;
+    
+    public TransportHandshakeInterceptor(boolean nativeTransport, ConnectAdmissionControl admissionControl,
+                                         MeterRegistry meterRegistry) {
+        this.nativeTransport = nativeTransport;
+        this.admissionControl = admissionControl;
+        this.meterRegistry = meterRegistry;
+    }
+    
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        if (admissionControl.isSaturated()) {
+            meterRegistry.counter("websocket.handshake.rejected").increment();
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            long retryAfterSeconds = (admissionControl.retryAfterMillis() + 999) / 1000;
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            return false;
+        }
+        
+        attributes.put(NATIVE_TRANSPORT_ATTRIBUTE, nativeTransport);
+        
+        List<String> extensions = request.getHeaders().getOrEmpty(EXTENSIONS_HEADER);
+        boolean deflate = extensions.stream().anyMatch(value -> value.contains(DEFLATE));
+        meterRegistry.counter("websocket.handshake",
+                "transport", nativeTransport ? "native" : "sockjs",
+                "deflate", String.valueOf(deflate)).increment();
+        return true;
+    }
+    
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.chatapp.websocket;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a handle on every open WebSocket session together with its outbound
+ * backlog: frames accepted on clientOutboundChannel that have not yet been
+ * written to the socket. The count is decremented by a thin session decorator
+ * that sits underneath Spring's send buffer, so it covers both the outbound
+ * executor queue and the per-session buffer.
+ */
+@Slf4j
+@Component
+public class WebSocketSessionTracker implements WebSocketHandlerDecoratorFactory {
+    
+    private final Map<String, TrackedSession> sessions = new ConcurrentHashMap<>();
+    
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                TrackedSession tracked = new TrackedSession(session);
+                sessions.put(session.getId(), tracked);
+                super.afterConnectionEstablished(new BacklogCountingSession(session, tracked));
+            }
+            
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+    
+    public TrackedSession get(String sessionId) {
+        return sessionId == null ? null : sessions.get(sessionId);
+    }
+    
+    public Collection<TrackedSession> all() {
+        return sessions.values();
+    }
+    
+    public void close(String sessionId, CloseStatus status) {
+        TrackedSession tracked = get(sessionId);
+        if (tracked == null || !tracked.getClosing().compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            tracked.getSession().close(status);
+        } catch (IOException e) {
+            log.debug("Failed to close WebSocket session {}", sessionId, e);
+        }
+    }
+    
+    @Getter
+    public static class TrackedSession {
+        private final WebSocketSession session;
+        private final AtomicInteger backlog = new AtomicInteger();
+        private final AtomicBoolean closing = new AtomicBoolean();
+        
+        // coalescing key -> latest pending frame for that key
+        private final Map<String, Message<?>> coalesced = new ConcurrentHashMap<>();
+        
+        TrackedSession(WebSocketSession session) {
+            this.session = session;
+        }
+        
+        public String getId() {
+            return session.getId();
+        }
+    }
+    
+    private static class BacklogCountingSession extends WebSocketSessionDecorator {
+        private final TrackedSession tracked;
+        
+        BacklogCountingSession(WebSocketSession delegate, TrackedSession tracked) {
+            super(delegate);
+            this.tracked = tracked;
+        }
+        
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            try {
+                super.sendMessage(message);
+            } finally {
+                // Frames written directly by the protocol handler were never counted
+                tracked.getBacklog().updateAndGet(pending -> pending > 0 ? pending - 1 : 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.chatapp.websocket;
+
+import com.example.chatapp.service.ChatMembershipCache;
+import com.example.chatapp.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DestinationAuthorizationInterceptorTest {
+    
+    private final ChatMembershipCache membershipCache = mock(ChatMembershipCache.class);
+    private final MessageChannel channel = mock(MessageChannel.class);
+    private DestinationAuthorizationInterceptor interceptor;
+    
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<SimpMessagingTemplate> template = mock(ObjectProvider.class);
+        when(template.getObject()).thenReturn(mock(SimpMessagingTemplate.class));
+        when(membershipCache.isMember(anyString(), anyString())).thenReturn(false);
+        when(membershipCache.isMember("chat-1", "user-1")).thenReturn(true);
+        when(membershipCache.isMember("chat-1", "user-2")).thenReturn(true);
+        interceptor = new DestinationAuthorizationInterceptor(
+                membershipCache, mock(UserService.class), template, new SimpleMeterRegistry());
+    }
+    
+    @ParameterizedTest
+    @ValueSource(strings = {"/topic/**", "/topic/*", "/topic/chat*", "/topic/chat.*", "/topic/group.{id}", "/topic/chat.chat-?"})
+    void refusesWildcardSubscribe(String destination) {
+        assertNull(interceptor.preSend(subscribe(destination), channel));
+    }
+    
+    @Test
+    void allowsMemberSubscribe() {
+        assertNotNull(interceptor.preSend(subscribe("/topic/chat.chat-1"), channel));
+    }
+    
+    @Test
+    void refusesNonMemberSubscribe() {
+        assertNull(interceptor.preSend(subscribe("/topic/chat.chat-2"), channel));
+    }
+    
+    @Test
+    void refusesRawQueueSubscribe() {
+        assertNull(interceptor.preSend(subscribe("/queue/errors"), channel));
+    }
+    
+    @Test
+    void allowsMemberSend() {
+        Message<?> result = interceptor.preSend(send("/app/chat.send", "{\"chatId\":\"chat-1\",\"receiverId\":\"user-2\"}"), channel);
+        assertNotNull(result);
+        assertEquals("chat-1", result.getHeaders().get(DestinationAuthorizationInterceptor.CHAT_ID_HEADER));
+    }
+    
+    @Test
+    void refusesNonMemberSend() {
+        assertNull(interceptor.preSend(send("/app/chat.send", "{\"chatId\":\"chat-2\"}"), channel));
+    }
+    
+    @Test
+    void refusesReceiverOutsideChat() {
+        assertNull(interceptor.preSend(send("/app/chat.send", "{\"chatId\":\"chat-1\",\"receiverId\":\"user-3\"}"), channel));
+    }
+    
+    @Test
+    void refusesNonJsonSend() {
+        assertNull(interceptor.preSend(send("/app/chat.send", "not json"), channel));
+        assertNull(interceptor.preSend(send("/app/chat.typing", "[\"chat-1\"]"), channel));
+    }
+    
+    @ParameterizedTest
+    @ValueSource(strings = {"/topic/chat.chat-1", "/topic/group.chat-1", "/user/victim@example.com/queue/messages", "/queue/messages"})
+    void refusesSendOutsideApp(String destination) {
+        assertNull(interceptor.preSend(send(destination, "{\"chatId\":\"chat-1\"}"), channel));
+    }
+    
+    private Message<byte[]> subscribe(String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSubscriptionId("sub-0");
+        return frame(accessor, destination, new byte[0]);
+    }
+    
+    private Message<byte[]> send(String destination, String payload) {
+        return frame(StompHeaderAccessor.create(StompCommand.SEND), destination, payload.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private Message<byte[]> frame(StompHeaderAccessor accessor, String destination, byte[] payload) {
+        accessor.setDestination(destination);
+        accessor.setSessionId("session-1");
+        accessor.setUser(() -> "user@example.com");
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(DestinationAuthorizationInterceptor.USER_ID_ATTRIBUTE, "user-1");
+        accessor.setSessionAttributes(attributes);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+}
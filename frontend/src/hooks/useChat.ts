@@ -4,6 +4,7 @@ import { useState, useEffect, useCallback, useRef } from "react";
 import type {
   Message,
   MessageSearchResult,
+  MessageStatusUpdate,
   TypingIndicator
 } from "@/types/message";
 import type { ChatRoom } from "@/types/chat";
@@ -78,7 +79,7 @@ export function useChat() {
 
   // Memoized WebSocket callback functions to prevent reconnection loops
   const handleMessageReceived = useCallback(
-    (message: Message) => {
+    (message: Message, muted = false) => {
       console.log("📨 Received WebSocket message:", message);
 
       // Add to current chat if it matches - use callback form to get current value
@@ -105,7 +106,9 @@ export function useChat() {
             ? {
                 ...room,
                 lastMessage: message,
-                unreadCount: room.unreadCount + 1
+                // Muted groups still update, without raising the unread count
+                unreadCount:
+                  muted || room.muted ? room.unreadCount : room.unreadCount + 1
               }
             : room
         )
@@ -126,13 +129,33 @@ export function useChat() {
     });
   }, []);
 
+  const handleStatusReceived = useCallback((update: MessageStatusUpdate) => {
+    const read = new Set(update.read ?? []);
+    const delivered = new Set(update.delivered ?? []);
+    setMessages((prev) =>
+      prev.map((msg) => {
+        if (read.has(msg.id)) {
+          return { ...msg, status: "READ" as const };
+        }
+        if (delivered.has(msg.id) && msg.status === "SENT") {
+          return { ...msg, status: "DELIVERED" as const };
+        }
+        return msg;
+      })
+    );
+  }, []);
+
   // WebSocket hooks
   const {
     isConnected,
     sendMessage: sendWebSocketMessage,
     sendTyping: sendWebSocketTyping,
     markAsRead: markAsReadWebSocket
-  } = useWebSocket(handleMessageReceived, handleTypingReceived);
+  } = useWebSocket(
+    handleMessageReceived,
+    handleTypingReceived,
+    handleStatusReceived
+  );
 
   // Backend API functions - searchUsers
   const searchUsers = async (query: string): Promise<any[]> => {
@@ -281,7 +304,9 @@ export function useChat() {
         chatId: currentChatId,
         content,
         type,
-        fileUrl
+        fileUrl,
+        // Lets the backend recognise a resend of this message
+        clientMessageId: tempId
       };
 
       // For direct chats, find the receiver ID
@@ -546,7 +571,8 @@ export function useChat() {
         participants: room.participants || [],
         lastMessage: undefined,
         unreadCount: room.unreadCount || 0,
-        avatarUrl: room.avatarUrl
+        avatarUrl: room.avatarUrl,
+        muted: room.muted || false
       }));
 
       setChatRooms(convertedRooms);
@@ -3,7 +3,11 @@
 import { useEffect, useRef, useState, useCallback } from "react";
 import { Client } from "@stomp/stompjs";
 import SockJS from "sockjs-client";
-import type { Message, TypingIndicator } from "@/types/message";
+import type {
+  Message,
+  MessageStatusUpdate,
+  TypingIndicator
+} from "@/types/message";
 import { useAuth } from "./useAuth";
 
 interface UseWebSocketReturn {
@@ -13,9 +17,13 @@ interface UseWebSocketReturn {
   markAsRead: (messageId: string) => void;
 }
 
+// Acks are batched and sent together to /app/chat.ack
+const ACK_FLUSH_INTERVAL_MS = 1000;
+
 export function useWebSocket(
-  onMessageReceived: (message: Message) => void,
-  onTypingReceived: (typing: TypingIndicator) => void
+  onMessageReceived: (message: Message, muted?: boolean) => void,
+  onTypingReceived: (typing: TypingIndicator) => void,
+  onStatusReceived?: (update: MessageStatusUpdate) => void
 ): UseWebSocketReturn {
   const { user } = useAuth();
   const clientRef = useRef<Client | null>(null);
@@ -24,6 +32,11 @@ export function useWebSocket(
   // Use refs to store the latest callback functions to avoid reconnection loops
   const onMessageReceivedRef = useRef(onMessageReceived);
   const onTypingReceivedRef = useRef(onTypingReceived);
+  const onStatusReceivedRef = useRef(onStatusReceived);
+  const pendingAcksRef = useRef({
+    delivered: new Set<string>(),
+    read: new Set<string>()
+  });
 
   // Update refs when callbacks change
   useEffect(() => {
@@ -34,6 +47,10 @@ export function useWebSocket(
     onTypingReceivedRef.current = onTypingReceived;
   }, [onTypingReceived]);
 
+  useEffect(() => {
+    onStatusReceivedRef.current = onStatusReceived;
+  }, [onStatusReceived]);
+
   useEffect(() => {
     if (!user) return;
 
@@ -52,6 +69,7 @@ export function useWebSocket(
     });
 
     client.onConnect = () => {
+      client.reconnectDelay = 5000;
       setIsConnected(true);
       console.log("🔌 WebSocket connected, setting up subscriptions...");
 
@@ -59,7 +77,45 @@ export function useWebSocket(
       client.subscribe(`/user/queue/messages`, (message) => {
         console.log("📨 Received message from personal queue:", message.body);
         const receivedMessage: Message = JSON.parse(message.body);
-        onMessageReceivedRef.current(receivedMessage);
+        if (receivedMessage.senderId !== user.id) {
+          pendingAcksRef.current.delivered.add(receivedMessage.id);
+        }
+        // Large groups flag frames for members who muted the group
+        onMessageReceivedRef.current(
+          receivedMessage,
+          message.headers["x-muted"] === "true"
+        );
+      });
+
+      // Messages that arrived while we were offline, one batch per subscription
+      const drainPending = (cursor?: string) => {
+        const subscription = client.subscribe(
+          `/app/deliveries.pending`,
+          (message) => {
+            subscription.unsubscribe();
+            const batch: {
+              messages: Message[];
+              truncated: boolean;
+              cursor?: string;
+            } = JSON.parse(message.body);
+            batch.messages.forEach((pending) => {
+              pendingAcksRef.current.delivered.add(pending.id);
+              onMessageReceivedRef.current(pending);
+            });
+            // More was queued than one batch holds; fetch the next one
+            if (batch.truncated) {
+              drainPending(batch.cursor);
+            }
+          },
+          cursor ? { cursor } : {}
+        );
+      };
+      drainPending();
+
+      // Delivered/read updates for messages we sent, one frame per chat
+      client.subscribe(`/user/queue/status`, (message) => {
+        const update: MessageStatusUpdate = JSON.parse(message.body);
+        onStatusReceivedRef.current?.(update);
       });
 
       // Subscribe to typing indicators
@@ -78,12 +134,37 @@ export function useWebSocket(
     client.onStompError = (frame) => {
       console.error("Broker reported error: " + frame.headers["message"]);
       console.error("Additional details: " + frame.body);
+      // Refused during a reconnect storm: come back when the server suggests
+      const retryAfter = Number(frame.headers["retry-after"]);
+      if (retryAfter > 0) {
+        client.reconnectDelay = retryAfter;
+      }
+    };
+
+    // Unsent acks stay buffered across reconnects
+    const flushAcks = () => {
+      const { delivered, read } = pendingAcksRef.current;
+      if (!client.connected || (delivered.size === 0 && read.size === 0)) {
+        return;
+      }
+      client.publish({
+        destination: "/app/chat.ack",
+        body: JSON.stringify({
+          delivered: Array.from(delivered),
+          read: Array.from(read)
+        })
+      });
+      delivered.clear();
+      read.clear();
     };
+    const ackTimer = setInterval(flushAcks, ACK_FLUSH_INTERVAL_MS);
 
     client.activate();
     clientRef.current = client;
 
     return () => {
+      clearInterval(ackTimer);
+      flushAcks();
       client.deactivate();
     };
   }, [user]); // Only depend on user, not the callback functions
@@ -112,12 +193,7 @@ export function useWebSocket(
   };
 
   const markAsRead = (messageId: string) => {
-    if (clientRef.current && isConnected) {
-      clientRef.current.publish({
-        destination: "/app/chat.read",
-        body: JSON.stringify({ messageId })
-      });
-    }
+    pendingAcksRef.current.read.add(messageId);
   };
 
   return {
@@ -21,4 +21,6 @@ export interface ChatRoom {
   participants: User[]
   lastMessage?: Message
   unreadCount: number
+  // Group muted by the current user: messages arrive but raise no unread count
+  muted?: boolean
 }
@@ -19,7 +19,6 @@ export interface Message {
 export interface MessageReaction {
   emoji: string
   userId: string
-  userName: string
 }
 
 export interface TypingIndicator {
@@ -29,6 +28,12 @@ export interface TypingIndicator {
   isTyping: boolean
 }
 
+export interface MessageStatusUpdate {
+  chatId: string
+  delivered?: string[]
+  read?: string[]
+}
+
 export interface MessageSearchResult {
   messages: Message[]
   totalCount: number